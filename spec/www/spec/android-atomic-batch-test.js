@@ -0,0 +1,137 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android atomic batch test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'sqlBatch committed in an atomic batch', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'atomic-batch-test.db', location: 'default'});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt VALUES (?)', ['first']],
+            ['INSERT INTO tt VALUES (?)', ['second']]
+          ], function() {
+            db.executeSql('SELECT COUNT(*) AS count FROM tt', [], function(rs) {
+              expect(rs.rows.item(0).count).toBe(2);
+
+              // no transaction still in progress:
+              db.executeSql('BEGIN', [], function() {
+                db.executeSql('ROLLBACK', [], function() {
+                  db.close(done, done);
+                });
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db.close(done, done);
+              });
+            });
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'sqlBatch with a failed statement rolled back in an atomic batch', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'atomic-batch-test-2.db', location: 'default'});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data UNIQUE)',
+            ['INSERT INTO tt VALUES (?)', ['first']]
+          ], function() {
+            db.sqlBatch([
+              ['INSERT INTO tt VALUES (?)', ['second']],
+              ['INSERT INTO tt VALUES (?)', ['first']],
+              ['INSERT INTO tt VALUES (?)', ['third']]
+            ], function() {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              db.close(done, done);
+            }, function(error) {
+              expect(error).toBeDefined();
+              expect(error.message).toMatch(/a statement with no error handler failed: .*UNIQUE constraint failed/);
+
+              db.executeSql('SELECT data FROM tt', [], function(rs) {
+                // none of the changes from the failed batch:
+                expect(rs.rows.length).toBe(1);
+                expect(rs.rows.item(0).data).toBe('first');
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'atomic batch with ATTACH stopped at the first failed statement', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'atomic-batch-test-4.db', location: 'default'});
+
+          db.sqlBatch([
+            'SELECT * FROM no_such_table',
+            "ATTACH ':memory:' AS extra"
+          ], function() {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            db.close(done, done);
+          }, function(error) {
+            expect(error.message).toMatch(/no such table/);
+
+            db.executeSql('PRAGMA database_list', [], function(rs) {
+              // ATTACH not executed:
+              for (var i=0; i<rs.rows.length; ++i)
+                expect(rs.rows.item(i).name).not.toBe('extra');
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'empty sqlBatch', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'atomic-batch-test-3.db', location: 'default'});
+
+          db.sqlBatch([], function() {
+            db.close(done, done);
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
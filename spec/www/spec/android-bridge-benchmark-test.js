@@ -0,0 +1,147 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 120000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+// payload sizes (bytes) & shapes for the sweep:
+var BENCHMARK_SIZES = [0, 1024, 16*1024, 128*1024, 1024*1024];
+var BENCHMARK_SHAPES = ['string', 'rows', 'flat', 'binary'];
+var BENCHMARK_ITERATIONS = 5;
+
+// run the benchmark action a number of times with the same parameters,
+// report the average round-trip latency with the one-way & build times:
+function runBenchmark(options, iterations, cb) {
+  var count = 0;
+  var total = { roundTrip: 0, toNative: 0, fromNative: 0, build: 0 };
+  var payloadLength = 0;
+
+  function next() {
+    var start = Date.now();
+
+    window.sqlitePlugin.bridgeBenchmark(options, function(result) {
+      var end = Date.now();
+      total.roundTrip += end - start;
+
+      if (options.shape === 'binary') {
+        payloadLength = result.byteLength;
+      } else {
+        payloadLength = result.payload.length;
+        total.toNative += result.receivedAt - start;
+        total.fromNative += end - result.sentAt;
+        total.build += result.buildTime;
+      }
+
+      if (++count < iterations) return next();
+
+      cb(null, {
+        shape: options.shape,
+        size: options.size,
+        payloadLength: payloadLength,
+        roundTrip: total.roundTrip / iterations,
+        toNative: total.toNative / iterations,
+        fromNative: total.fromNative / iterations,
+        build: total.build / iterations,
+        // MB/s, with the round-trip time:
+        throughput: (total.roundTrip > 0) ? (options.size * iterations / 1000) / total.roundTrip : 0
+      });
+
+    }, function(error) {
+      cb(error);
+    });
+  }
+
+  next();
+}
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android bridge benchmark test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'bridgeBenchmark payload shapes', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          window.sqlitePlugin.bridgeBenchmark({shape: 'rows', size: 1000, data: 'abc'}, function(result) {
+            expect(result.requestLength).toBe(3);
+            expect(result.payload.length).toBeGreaterThan(0);
+            expect(result.payload[0].id).toBe(0);
+            expect(result.payload[0].data.length).toBe(64);
+            expect(result.sentAt).not.toBeLessThan(result.receivedAt);
+
+            window.sqlitePlugin.bridgeBenchmark({shape: 'flat', size: 1000}, function(result) {
+              expect(result.payload[0]).toBe('okrows');
+              expect(result.payload[result.payload.length - 1]).toBe('endrows');
+
+              window.sqlitePlugin.bridgeBenchmark({shape: 'binary', size: 1000}, function(result) {
+                expect(result.byteLength).toBe(1000);
+
+                window.sqlitePlugin.bridgeBenchmark({shape: 'string', size: -1}, function(result) {
+                  // NOT EXPECTED:
+                  expect(false).toBe(true);
+                  done();
+                }, function(error) {
+                  expect(error).toMatch(/invalid benchmark payload size/);
+                  done();
+                });
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'bridgeBenchmark sweep of payload sizes & shapes', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var cases = [];
+          BENCHMARK_SHAPES.forEach(function(shape) {
+            BENCHMARK_SIZES.forEach(function(size) {
+              cases.push({shape: shape, size: size});
+            });
+          });
+
+          var results = [];
+
+          function next() {
+            if (cases.length === 0) {
+              // report the latency & throughput curves:
+              console.log('bridge benchmark results (times in ms, throughput in MB/s):');
+              results.forEach(function(r) {
+                console.log(r.shape + ' size: ' + r.size + ' round trip: ' + r.roundTrip.toFixed(2) +
+                  ' to native: ' + r.toNative.toFixed(2) + ' from native: ' + r.fromNative.toFixed(2) +
+                  ' build: ' + r.build.toFixed(2) + ' throughput: ' + r.throughput.toFixed(2));
+              });
+              expect(results.length).toBe(BENCHMARK_SHAPES.length * BENCHMARK_SIZES.length);
+              return done();
+            }
+
+            runBenchmark(cases.shift(), BENCHMARK_ITERATIONS, function(error, r) {
+              expect(error).toBe(null);
+              if (!!r) results.push(r);
+              next();
+            });
+          }
+
+          next();
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,102 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android busy retry test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'parallel reader SELECT retried while the writer holds an exclusive lock', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'busy-retry-test.db';
+
+          var db = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+          var reader = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', isReadOnly: 'yes',
+            busyRetries: 8, busyRetryDelay: 50});
+
+          db.sqlBatch(['DROP TABLE IF EXISTS tt', 'CREATE TABLE tt (data)', ['INSERT INTO tt VALUES (?)', ['first']]], function() {
+            db.executeSql('BEGIN EXCLUSIVE', [], function() {
+              reader.executeSql('SELECT COUNT(*) AS count FROM tt', [], function(rs) {
+                // retried until after the writer committed:
+                expect(rs.rows.item(0).count).toBe(1);
+
+                reader.getDatabaseStats(function(stats) {
+                  expect(stats.busyRetries).toBeDefined();
+                  expect(stats.busyRetries.retries).not.toBeLessThan(1);
+                  expect(stats.busyRetries.recovered).toBe(1);
+                  expect(stats.busyRetries.failed).toBe(0);
+                  reader.close(function() {
+                    db.close(done, done);
+                  }, done);
+                });
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                reader.close(done, done);
+              });
+
+              setTimeout(function() {
+                db.executeSql('COMMIT');
+              }, 200);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'busy error without busyRetries option', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'busy-retry-test-2.db';
+
+          var db = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+          var reader = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', isReadOnly: 'yes'});
+
+          db.sqlBatch(['DROP TABLE IF EXISTS tt', 'CREATE TABLE tt (data)'], function() {
+            db.executeSql('BEGIN EXCLUSIVE', [], function() {
+              reader.executeSql('SELECT COUNT(*) AS count FROM tt', [], function(rs) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                db.executeSql('COMMIT', [], function() {
+                  reader.close(done, done);
+                });
+              }, function(error) {
+                expect(error.message).toMatch(/database is locked/);
+
+                reader.getDatabaseStats(function(stats) {
+                  expect(stats.busyRetries).not.toBeDefined();
+                  db.executeSql('COMMIT', [], function() {
+                    reader.close(function() {
+                      db.close(done, done);
+                    }, done);
+                  });
+                });
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,119 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android change notification test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'subscribeChanges with one notification for each committed transaction', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'change-notification-test.db', location: 'default'});
+
+          var notifications = [];
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'DROP TABLE IF EXISTS other',
+            'CREATE TABLE tt (id INTEGER PRIMARY KEY, data)',
+            'CREATE TABLE other (data)'
+          ], function() {
+            db.subscribeChanges({tables: ['tt']}, function(n) {
+              notifications.push(n);
+            }, function(result) {
+              expect(result.subscribed).toBe(true);
+              expect(result.tables).toEqual(['tt']);
+
+              db.transaction(function(tx) {
+                tx.executeSql('INSERT INTO tt VALUES (?,?)', [101, 'first']);
+                tx.executeSql('INSERT INTO tt VALUES (?,?)', [102, 'second']);
+                tx.executeSql('INSERT INTO other VALUES (?)', ['not watched']);
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db.close(done, done);
+              }, function() {
+                db.executeSql('DELETE FROM tt WHERE id=?', [101], function() {
+                  db.unsubscribeChanges(function() {
+                    db.executeSql('DELETE FROM tt', [], function() {
+                      // (no more notifications after the final notification)
+                      db.executeSql('SELECT 1', [], function() {
+                        expect(notifications.length).toBe(3);
+                        expect(notifications[0].changes.tt).toEqual({count: 2, rowids: [101, 102]});
+                        expect(notifications[0].changes.other).not.toBeDefined();
+                        expect(notifications[1].changes.tt).toEqual({count: 1, rowids: [101]});
+                        expect(notifications[2]).toEqual({unsubscribed: true});
+                        db.close(done, done);
+                      });
+                    });
+                  });
+                });
+              });
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'subscribeChanges with no notification for a rolled back transaction', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'change-notification-test-2.db', location: 'default'});
+
+          var notifications = [];
+
+          db.executeSql('CREATE TABLE IF NOT EXISTS tt (data)', [], function() {
+            db.subscribeChanges(null, function(n) {
+              notifications.push(n);
+            }, function() {
+              db.transaction(function(tx) {
+                tx.executeSql('INSERT INTO tt VALUES (?)', ['rolled back']);
+                tx.executeSql('SELECT * FROM no_such_table');
+              }, function(error) {
+                db.executeSql('SELECT 1', [], function() {
+                  expect(notifications.length).toBe(0);
+                  db.close(function() {
+                    // final notification when the database is closed
+                    expect(notifications.length).toBe(1);
+                    expect(notifications[0]).toEqual({unsubscribed: true});
+                    done();
+                  }, done);
+                });
+              }, function() {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,68 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android createFromAsset test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'createFromAsset with an asset that does not exist', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          window.sqlitePlugin.openDatabase({
+            name: 'create-from-asset-test-missing.db',
+            location: 'default',
+            createFromAsset: 'www/no-such-asset.db'
+          }, function(db) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            db.close(done, done);
+          }, function(error) {
+            expect(error).toBeDefined();
+            done();
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'createFromAsset with a checksum mismatch', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          window.sqlitePlugin.openDatabase({
+            name: 'create-from-asset-test-checksum.db',
+            location: 'default',
+            // (any existing asset, not installed due to the checksum mismatch)
+            createFromAsset: 'www/index.html',
+            createFromAssetSha256: '0000000000000000000000000000000000000000000000000000000000000000'
+          }, function(db) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            db.close(done, done);
+          }, function(error) {
+            expect(error).toBeDefined();
+            done();
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,96 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android data version test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'getDataVersion changed after a committed change', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'data-version-test.db', location: 'default', durability: 'balanced'});
+
+          db.executeSql('CREATE TABLE IF NOT EXISTS tt (data)', [], function() {
+            db.getDataVersion(function(v1) {
+              expect(v1).toBeDefined();
+              expect(typeof v1.dataVersion).toBe('number');
+              expect(typeof v1.totalChanges).toBe('number');
+
+              db.getDataVersion(function(v2) {
+                // no change:
+                expect(v2).toEqual(v1);
+
+                db.executeSql('INSERT INTO tt VALUES (?)', ['test'], function() {
+                  db.getDataVersion(function(v3) {
+                    expect(v3.dataVersion).not.toBe(v1.dataVersion);
+                    expect(v3.totalChanges).toBe(v1.totalChanges + 1);
+                    db.close(done, done);
+                  });
+                });
+              });
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'getDataVersion not in WAL mode', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'data-version-test-durable.db', location: 'default', durability: 'durable'});
+
+          db.executeSql('CREATE TABLE IF NOT EXISTS tt (data)', [], function() {
+            db.executeSql('INSERT INTO tt VALUES (?)', ['test'], function() {
+              db.getDataVersion(function(v) {
+                expect(v.dataVersion).toBe(null);
+                expect(typeof v.totalChanges).toBe('number');
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'getDataVersion for an in-memory database', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'data-version-test-memory.db', location: 'default', inMemory: true});
+
+          db.executeSql('CREATE TABLE tt (data)', [], function() {
+            db.executeSql('INSERT INTO tt VALUES (?)', ['test'], function() {
+              db.getDataVersion(function(v) {
+                expect(v.dataVersion).toBe(null);
+                expect(v.totalChanges).toBe(1);
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,117 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android database stats test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'getDatabaseStats with default cache size', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'database-stats-test.db', location: 'default'});
+
+          db.getDatabaseStats(function(stats) {
+            expect(stats).toBeDefined();
+            expect(stats.pageSize).toBe(4096);
+            expect(stats.pageCount).toBeDefined();
+            expect(stats.freelistCount).toBeDefined();
+            expect(stats.cacheSize).toBe(-2000);
+            expect(stats.cacheLimitBytes).toBe(2000*1024);
+            db.close(done, done);
+
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'cacheSize option with getDatabaseStats after a change', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'database-stats-test-2.db', location: 'default', cacheSize: 512});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt VALUES (?)', ['test']]
+          ], function() {
+            db.getDatabaseStats(function(stats) {
+              expect(stats.cacheSize).toBe(-512);
+              expect(stats.cacheLimitBytes).toBe(512*1024);
+              expect(stats.pageCount).toBeGreaterThan(1);
+              expect(stats.totalChanges).toBeGreaterThan(0);
+              db.close(done, done);
+
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'allocationStats option with getDatabaseStats reset', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'database-stats-test-3.db', location: 'default', allocationStats: true});
+
+          db.executeSql('SELECT UPPER(?) AS upperText', ['test'], function(rs) {
+            expect(rs.rows.item(0).upperText).toBe('TEST');
+
+            db.getDatabaseStats({reset: true}, function(stats) {
+              expect(stats.allocation).toBeDefined();
+              // (executeSql batch)
+              expect(stats.allocation.batches).not.toBeLessThan(1);
+              // (may be 0 in case the platform does not support thread allocation counting)
+              expect(stats.allocation.bytes).not.toBeLessThan(0);
+              expect(stats.allocation.objects).not.toBeLessThan(0);
+              expect(stats.allocation.maxBytes).not.toBeGreaterThan(stats.allocation.bytes);
+
+              db.getDatabaseStats(function(stats2) {
+                // reset by the first getDatabaseStats:
+                expect(stats2.allocation.batches).toBe(0);
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'no allocation stats by default', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'database-stats-test.db', location: 'default'});
+
+          db.getDatabaseStats(function(stats) {
+            expect(stats.allocation).not.toBeDefined();
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,90 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android durability profile test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+      [
+        ['durable', 'delete'],
+        ['balanced', 'wal'],
+        ['cache', 'memory']
+      ].forEach(function(p) {
+        var profile = p[0];
+        var journalMode = p[1];
+
+        it(suiteName + 'open with durability profile: ' + profile, function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'durability-' + profile + '-test.db', location: 'default', durability: profile});
+
+          db.executeSql('PRAGMA journal_mode', [], function(rs) {
+            expect(rs.rows.length).toBe(1);
+            expect(rs.rows.item(0).journal_mode).toBe(journalMode);
+
+            db.sqlBatch([
+              'DROP TABLE IF EXISTS tt',
+              'CREATE TABLE tt (data)',
+              ['INSERT INTO tt VALUES (?)', ['test-value']]
+            ], function() {
+              db.executeSql('SELECT data FROM tt', [], function(rs2) {
+                expect(rs2.rows.length).toBe(1);
+                expect(rs2.rows.item(0).data).toBe('test-value');
+                db.close(done, done);
+              });
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              db.close(done, done);
+            });
+
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+      });
+
+      it(suiteName + 'open with unknown durability profile reports an error', function(done) {
+        if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+        window.sqlitePlugin.openDatabase({name: 'durability-unknown-test.db', location: 'default', durability: 'fastest'}, function(db) {
+          // NOT EXPECTED:
+          expect(false).toBe(true);
+          db.close(done, done);
+        }, function(error) {
+          expect(error).toBeDefined();
+          expect(error.message).toMatch(/Could not open database/);
+          expect(error.message).toMatch(/unknown durability profile: fastest/);
+          done();
+        });
+      }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,87 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android execute script test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'executeScript with a trigger and semicolons in string values', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'execute-script-test.db', location: 'default'});
+
+          var script =
+            '-- test script\n' +
+            'DROP TABLE IF EXISTS tt;\n' +
+            'DROP TABLE IF EXISTS tlog;\n' +
+            'CREATE TABLE tt (data);\n' +
+            'CREATE TABLE tlog (data);\n' +
+            'CREATE TRIGGER tt_insert AFTER INSERT ON tt BEGIN\n' +
+            '  INSERT INTO tlog VALUES (NEW.data);\n' +
+            'END;\n' +
+            "INSERT INTO tt VALUES ('a;b');\n" +
+            "/* comment; */ INSERT INTO tt VALUES ('c''d')";
+
+          db.executeScript({sql: script}, function(r) {
+            expect(r.statements).toBe(7);
+
+            db.executeSql('SELECT data FROM tlog', [], function(rs) {
+              expect(rs.rows.length).toBe(2);
+              expect(rs.rows.item(0).data).toBe('a;b');
+              expect(rs.rows.item(1).data).toBe("c'd");
+              db.close(done, done);
+            });
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'executeScript with an error rolled back', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'execute-script-test-2.db', location: 'default'});
+
+          db.sqlBatch(['DROP TABLE IF EXISTS tt', 'CREATE TABLE tt (data)'], function() {
+            db.executeScript({sql: "INSERT INTO tt VALUES ('first');\nINSERT INTO no_such_table VALUES (1);\n"}, function() {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              db.close(done, done);
+            }, function(error) {
+              expect(error.message).toMatch(/error in statement 2 \(line 2\): .*no such table/);
+
+              db.executeSql('SELECT COUNT(*) AS count FROM tt', [], function(rs) {
+                expect(rs.rows.item(0).count).toBe(0);
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
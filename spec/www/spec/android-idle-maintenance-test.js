@@ -0,0 +1,95 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android idle maintenance test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'incremental vacuum while idle', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'idle-maintenance-test.db', location: 'default', idleMaintenance: 500});
+
+          var blob = new Array(2000).join('x');
+          var statements = ['DROP TABLE IF EXISTS tt', 'CREATE TABLE tt (data)'];
+          for (var j=0; j<500; ++j) statements.push(['INSERT INTO tt VALUES (?)', [blob]]);
+          statements.push('DELETE FROM tt');
+
+          // VACUUM (outside of a transaction) is needed to change auto_vacuum of an existing database:
+          db.executeSql('PRAGMA auto_vacuum=INCREMENTAL', [], function() {
+            db.executeSql('VACUUM', [], function() {
+              db.sqlBatch(statements, function() {
+                db.getDatabaseStats(function(stats1) {
+                  expect(stats1.freelistCount).toBeGreaterThan(64);
+
+                  setTimeout(function() {
+                    db.getDatabaseStats(function(stats2) {
+                      expect(stats2.freelistCount).toBe(0);
+                      expect(stats2.pageCount).toBeLessThan(stats1.pageCount);
+                      db.close(done, done);
+                    });
+                  }, 3000);
+                });
+
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'no maintenance while a transaction is in progress', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'idle-maintenance-test-2.db', location: 'default', idleMaintenance: 10});
+
+          db.transaction(function(tx) {
+            tx.executeSql('DROP TABLE IF EXISTS tt');
+            tx.executeSql('CREATE TABLE tt (data)', [], function(tx) {
+              // wait in the transaction:
+              var start = Date.now();
+              while (Date.now() - start < 500);
+              tx.executeSql('INSERT INTO tt VALUES (?)', ['test']);
+            });
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+
+          }, function() {
+            db.executeSql('SELECT COUNT(*) AS c FROM tt', [], function(rs) {
+              expect(rs.rows.item(0).c).toBe(1);
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
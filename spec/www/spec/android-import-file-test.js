@@ -0,0 +1,185 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+// write a test data file in the app data directory (with help from cordova-plugin-file):
+function writeDataFile(filename, data, okcb, errorcb) {
+  window.resolveLocalFileSystemURL(cordova.file.dataDirectory, function(dataDirectoryEntry) {
+    dataDirectoryEntry.getFile(filename, {create: true, exclusive: false}, function(fileEntry) {
+      fileEntry.createWriter(function(writer) {
+        writer.onwriteend = function() { okcb(fileEntry.toURL()); };
+        writer.onerror = errorcb;
+        writer.write(new Blob([data], {type: 'text/plain'}));
+      }, errorcb);
+    }, errorcb);
+  }, errorcb);
+}
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android importFile test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'import CSV file with header, quoted fields, and progress callbacks', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var csv = 'id,name,note\n' +
+            '1,first,"with, comma"\n' +
+            '2,second,"with ""quotes"""\n' +
+            '3,third,"two\nlines"\n' +
+            '4,fourth,\n';
+
+          writeDataFile('import-test.csv', csv, function(fileURL) {
+            var db = window.sqlitePlugin.openDatabase({name: 'import-file-test.db', location: 'default'});
+            var progressCount = 0;
+
+            db.sqlBatch([
+              'DROP TABLE IF EXISTS tt',
+              'CREATE TABLE tt (id INTEGER, name TEXT, note TEXT)'
+            ], function() {
+              db.importFile({file: fileURL, table: 'tt', batchSize: 2, progress: true}, function(result) {
+                expect(result).toBeDefined();
+                expect(result.rowsImported).toBe(4);
+                expect(progressCount).toBe(1);
+
+                db.executeSql('SELECT * FROM tt ORDER BY id', [], function(rs) {
+                  expect(rs.rows.length).toBe(4);
+                  expect(rs.rows.item(0).id).toBe(1);
+                  expect(rs.rows.item(0).note).toBe('with, comma');
+                  expect(rs.rows.item(1).note).toBe('with "quotes"');
+                  expect(rs.rows.item(2).note).toBe('two\nlines');
+                  expect(rs.rows.item(3).note).toBe(null);
+                  db.close(done, done);
+                });
+
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db.close(done, done);
+
+              }, function(rowsImported) {
+                expect(rowsImported).toBe(2);
+                ++progressCount;
+              });
+            });
+
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(JSON.stringify(error)).toBe('---');
+            done();
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'import JSON lines file rolls back the failed batch', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var jsonl = '{"id": 1, "data": "a"}\n' +
+            '{"id": 2, "data": "b"}\n' +
+            '{"id": 2, "data": "duplicate"}\n';
+
+          writeDataFile('import-test.jsonl', jsonl, function(fileURL) {
+            var db = window.sqlitePlugin.openDatabase({name: 'import-file-test.db', location: 'default'});
+
+            db.sqlBatch([
+              'DROP TABLE IF EXISTS tt2',
+              'CREATE TABLE tt2 (id INTEGER PRIMARY KEY, data TEXT)'
+            ], function() {
+              db.importFile({file: fileURL, table: 'tt2', batchSize: 2}, function(result) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                db.close(done, done);
+
+              }, function(error) {
+                expect(error).toBeDefined();
+                expect(error.message).toMatch(/import error after 2 rows imported/);
+
+                db.executeSql('SELECT COUNT(*) AS c FROM tt2', [], function(rs) {
+                  expect(rs.rows.item(0).c).toBe(2);
+                  db.close(done, done);
+                });
+              });
+            });
+
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(JSON.stringify(error)).toBe('---');
+            done();
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'import CSV file with byte order mark, then unterminated quoted field', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var csv = '\uFEFFid,name\n1,first\n';
+          var badcsv = 'id,name\n1,first\n2,"second\n';
+
+          writeDataFile('import-test-bom.csv', csv, function(fileURL) {
+            writeDataFile('import-test-bad.csv', badcsv, function(badFileURL) {
+              var db = window.sqlitePlugin.openDatabase({name: 'import-file-test.db', location: 'default'});
+
+              db.sqlBatch([
+                'DROP TABLE IF EXISTS tt3',
+                'CREATE TABLE tt3 (id INTEGER, name TEXT)'
+              ], function() {
+                db.importFile({file: fileURL, table: 'tt3'}, function(result) {
+                  expect(result.rowsImported).toBe(1);
+
+                  db.importFile({file: badFileURL, table: 'tt3'}, function(result) {
+                    // NOT EXPECTED:
+                    expect(false).toBe(true);
+                    db.close(done, done);
+
+                  }, function(error) {
+                    expect(error.message).toMatch(/unterminated quoted CSV field at line 3/);
+                    expect(error.message).not.toMatch(/JSON/);
+                    db.close(done, done);
+                  });
+
+                }, function(error) {
+                  // NOT EXPECTED:
+                  expect(false).toBe(true);
+                  expect(error.message).toBe('--');
+                  db.close(done, done);
+                });
+              });
+
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(JSON.stringify(error)).toBe('---');
+              done();
+            });
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(JSON.stringify(error)).toBe('---');
+            done();
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,180 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android in-memory database test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'in-memory database saved on close and loaded on open', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'in-memory-snapshot-test.db';
+          var db = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', inMemory: true, inMemorySave: true});
+
+          db.sqlBatch([
+            'CREATE TABLE IF NOT EXISTS tt (id INTEGER PRIMARY KEY AUTOINCREMENT, data)',
+            'CREATE INDEX IF NOT EXISTS tt_data ON tt (data)',
+            'DELETE FROM tt',
+            ['INSERT INTO tt (data) VALUES (?)', ['first']],
+            ['INSERT INTO tt (data) VALUES (?)', ['second']],
+            'PRAGMA user_version = 3'
+          ], function() {
+            db.close(function() {
+              var db2 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', inMemory: true, inMemoryLoad: true});
+
+              db2.executeSql('SELECT data FROM tt ORDER BY id', [], function(rs) {
+                expect(rs.rows.length).toBe(2);
+                expect(rs.rows.item(0).data).toBe('first');
+                expect(rs.rows.item(1).data).toBe('second');
+
+                db2.executeSql('PRAGMA user_version', [], function(rs2) {
+                  expect(rs2.rows.item(0).user_version).toBe(3);
+
+                  db2.executeSql("SELECT COUNT(*) AS c FROM sqlite_master WHERE name='tt_data'", [], function(rs3) {
+                    expect(rs3.rows.item(0).c).toBe(1);
+                    db2.close(done, done);
+                  });
+                });
+
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db2.close(done, done);
+              });
+
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(JSON.stringify(error)).toBe('--');
+              done();
+            });
+
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'rowid values kept by in-memory database save & load', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'in-memory-rowid-test.db';
+          var db = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', inMemory: true, inMemorySave: true});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt (rowid, data) VALUES (?, ?)', [5, 'first']],
+            ['INSERT INTO tt (rowid, data) VALUES (?, ?)', [101, 'second']]
+          ], function() {
+            db.close(function() {
+              // loaded and saved again:
+              var db2 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', inMemory: true,
+                inMemoryLoad: true, inMemorySave: true});
+
+              db2.executeSql("INSERT INTO tt (rowid, data) VALUES (200, 'third')", [], function() {
+                db2.close(function() {
+                  var db3 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', inMemory: true, inMemoryLoad: true});
+
+                  db3.executeSql('SELECT rowid, data FROM tt ORDER BY rowid', [], function(rs) {
+                    expect(rs.rows.length).toBe(3);
+                    expect(rs.rows.item(0).rowid).toBe(5);
+                    expect(rs.rows.item(0).data).toBe('first');
+                    expect(rs.rows.item(1).rowid).toBe(101);
+                    expect(rs.rows.item(1).data).toBe('second');
+                    expect(rs.rows.item(2).rowid).toBe(200);
+                    db3.close(done, done);
+                  }, function(error) {
+                    // NOT EXPECTED:
+                    expect(false).toBe(true);
+                    expect(error.message).toBe('--');
+                    db3.close(done, done);
+                  });
+                }, done);
+              });
+            }, done);
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'in-memory database with saveSnapshot', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'in-memory-save-test.db';
+          var db = window.sqlitePlugin.openDatabase({name: dbname, location: 'default', inMemory: true, inMemorySave: true});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt VALUES (?)', ['test-value']]
+          ], function() {
+            db.saveSnapshot(function(result) {
+              expect(result.saved).toBe(true);
+
+              db.saveSnapshot(function(result2) {
+                // no changes since last save:
+                expect(result2.saved).toBe(false);
+
+                // snapshot file can be opened as a normal database:
+                db.close(function() {
+                  var db2 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+                  db2.executeSql('SELECT data FROM tt', [], function(rs) {
+                    expect(rs.rows.length).toBe(1);
+                    expect(rs.rows.item(0).data).toBe('test-value');
+                    db2.close(done, done);
+                  });
+                }, done);
+              });
+
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'in-memory database is empty when not loaded', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'in-memory-snapshot-test.db', location: 'default', inMemory: true});
+
+          db.executeSql('SELECT COUNT(*) AS c FROM sqlite_master', [], function(rs) {
+            expect(rs.rows.item(0).c).toBe(0);
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
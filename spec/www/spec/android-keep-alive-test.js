@@ -0,0 +1,189 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android keepAlive test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'reopen within keepAlive period uses the same database handle', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbopts = {name: 'keep-alive-test.db', location: 'default', keepAlive: 10000};
+          var db = window.sqlitePlugin.openDatabase(dbopts);
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt VALUES (?)', ['test']]
+          ], function() {
+            db.close(function() {
+              var db2 = window.sqlitePlugin.openDatabase(dbopts, function() {
+                db2.getDatabaseStats(function(stats) {
+                  // total changes are counted on the same (kept alive) handle:
+                  expect(stats.totalChanges).toBeGreaterThan(0);
+
+                  db2.executeSql('SELECT data FROM tt', [], function(rs) {
+                    expect(rs.rows.length).toBe(1);
+                    expect(rs.rows.item(0).data).toBe('test');
+                    db2.close(done, done);
+                  });
+                });
+
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                done();
+              });
+
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              done();
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'reopen after keepAlive period uses a new database handle', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbopts = {name: 'keep-alive-test-2.db', location: 'default', keepAlive: 100};
+          var db = window.sqlitePlugin.openDatabase(dbopts);
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt VALUES (?)', ['test']]
+          ], function() {
+            db.close(function() {
+              setTimeout(function() {
+                var db2 = window.sqlitePlugin.openDatabase(dbopts, function() {
+                  db2.getDatabaseStats(function(stats) {
+                    expect(stats.totalChanges).toBe(0);
+
+                    db2.executeSql('SELECT data FROM tt', [], function(rs) {
+                      expect(rs.rows.length).toBe(1);
+                      db2.close(done, done);
+                    });
+                  });
+
+                }, function(error) {
+                  // NOT EXPECTED:
+                  expect(false).toBe(true);
+                  expect(error.message).toBe('--');
+                  done();
+                });
+              }, 1000);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'reopen within keepAlive period with other options uses a new database handle', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbopts = {name: 'keep-alive-test-3.db', location: 'default', keepAlive: 10000};
+          var db = window.sqlitePlugin.openDatabase(dbopts);
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt VALUES (?)', ['test']]
+          ], function() {
+            db.close(function() {
+              var db2 = window.sqlitePlugin.openDatabase({name: 'keep-alive-test-3.db', location: 'default', keepAlive: 10000, readOnly: true}, function() {
+                db2.getDatabaseStats(function(stats) {
+                  // new database handle:
+                  expect(stats.totalChanges).toBe(0);
+
+                  db2.executeSql('INSERT INTO tt VALUES (?)', ['not allowed'], function() {
+                    // NOT EXPECTED:
+                    expect(false).toBe(true);
+                    db2.close(done, done);
+                  }, function(error) {
+                    // read-only:
+                    expect(error).toBeDefined();
+                    db2.close(done, done);
+                  });
+                });
+
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                done();
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'reopen within keepAlive period applies new migrations', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'keep-alive-migration-test.db';
+          var migrations = [
+            {version: 1, sql: 'CREATE TABLE items (id INTEGER PRIMARY KEY, name TEXT);'},
+            {version: 2, sql: 'ALTER TABLE items ADD COLUMN price REAL;'}
+          ];
+
+          var db0 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+          db0.sqlBatch(['DROP TABLE IF EXISTS items', 'PRAGMA user_version=0'], function() {
+            db0.close(function() {
+              window.sqlitePlugin.openDatabase({name: dbname, location: 'default', keepAlive: 10000, migrations: migrations.slice(0, 1)}, function(db) {
+                expect(db.migrations.toVersion).toBe(1);
+
+                db.close(function() {
+                  window.sqlitePlugin.openDatabase({name: dbname, location: 'default', keepAlive: 10000, migrations: migrations}, function(db2) {
+                    expect(db2.migrations.fromVersion).toBe(1);
+                    expect(db2.migrations.toVersion).toBe(2);
+                    expect(db2.migrations.applied.length).toBe(1);
+
+                    db2.close(function() {
+                      // same options: reuses the kept alive handle, with no pending migrations
+                      window.sqlitePlugin.openDatabase({name: dbname, location: 'default', keepAlive: 10000, migrations: migrations}, function(db3) {
+                        expect(db3.migrations.fromVersion).toBe(2);
+                        expect(db3.migrations.applied.length).toBe(0);
+
+                        db3.executeSql('SELECT price FROM items', [], function(rs) {
+                          expect(rs.rows.length).toBe(0);
+                          db3.close(done, done);
+                        });
+                      });
+                    });
+                  }, function(error) {
+                    // NOT EXPECTED:
+                    expect(false).toBe(true);
+                    expect(error.message).toBe('--');
+                    done();
+                  });
+                });
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,116 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android query page test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'queryPage through all rows of a table', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'query-page-test.db', location: 'default'});
+
+          var batch = [
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (id INTEGER PRIMARY KEY, data)'
+          ];
+          for (var j=1; j<=25; ++j) batch.push(['INSERT INTO tt VALUES (?,?)', [j, 'row-' + j]]);
+
+          db.sqlBatch(batch, function() {
+            var ids = [];
+            var pageCount = 0;
+
+            var nextPage = function(token) {
+              db.queryPage({table: 'tt', key: 'id', pageSize: 10, token: token}, function(page) {
+                ++pageCount;
+                page.rows.forEach(function(row) { ids.push(row.id); });
+
+                if (page.token !== null) return nextPage(page.token);
+
+                expect(pageCount).toBe(3);
+                expect(ids.length).toBe(25);
+                expect(ids[0]).toBe(1);
+                expect(ids[24]).toBe(25);
+                db.close(done, done);
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db.close(done, done);
+              });
+            };
+
+            nextPage(null);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'queryPage with a query in descending order', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'query-page-test-2.db', location: 'default'});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (id INTEGER PRIMARY KEY, data)',
+            "INSERT INTO tt VALUES (1, 'a')",
+            "INSERT INTO tt VALUES (2, 'b')",
+            "INSERT INTO tt VALUES (3, 'a')",
+            "INSERT INTO tt VALUES (4, 'a')"
+          ], function() {
+            var options = {query: 'SELECT id, data FROM tt WHERE data = ?', params: ['a'], key: 'id', desc: true, pageSize: 2};
+            db.queryPage(options, function(page1) {
+              expect(page1.rows).toEqual([{id: 4, data: 'a'}, {id: 3, data: 'a'}]);
+              expect(page1.token).not.toBe(null);
+
+              options.token = page1.token;
+              db.queryPage(options, function(page2) {
+                expect(page2.rows).toEqual([{id: 1, data: 'a'}]);
+                expect(page2.token).toBe(null);
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'queryPage with an invalid token', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'query-page-test-3.db', location: 'default'});
+
+          db.executeSql('CREATE TABLE IF NOT EXISTS tt (id INTEGER PRIMARY KEY)', [], function() {
+            db.queryPage({table: 'tt', key: 'id', token: 'invalid'}, function(page) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              db.close(done, done);
+            }, function(error) {
+              expect(error.message).toMatch(/invalid page token/);
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,95 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android read-only test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+      ['readOnly', 'immutable'].forEach(function(optionName) {
+
+        it(suiteName + 'read from and attempt to write to a database opened with the ' + optionName + ' option', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'read-only-test-' + optionName + '.db';
+
+          var db = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (data)',
+            ['INSERT INTO tt VALUES (?)', ['first']]
+          ], function() {
+            db.close(function() {
+              var options = {name: dbname, location: 'default'};
+              options[optionName] = true;
+
+              var db2 = window.sqlitePlugin.openDatabase(options);
+
+              db2.executeSql('SELECT data FROM tt', [], function(rs) {
+                expect(rs.rows.length).toBe(1);
+                expect(rs.rows.item(0).data).toBe('first');
+
+                db2.executeSql('INSERT INTO tt VALUES (?)', ['second'], function() {
+                  // NOT EXPECTED:
+                  expect(false).toBe(true);
+                  db2.close(done, done);
+                }, function(error) {
+                  expect(error).toBeDefined();
+                  expect(error.message).toMatch(/readonly/);
+                  db2.close(done, done);
+                });
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db2.close(done, done);
+              });
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              done();
+            });
+          });
+        }, MYTIMEOUT);
+
+      });
+
+        it(suiteName + 'open a database that does not exist with the readOnly option', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          window.sqlitePlugin.openDatabase({name: 'read-only-test-missing-db-file.db', location: 'default', readOnly: true}, function(db) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            db.close(done, done);
+          }, function(error) {
+            expect(error).toBeDefined();
+            done();
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,110 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android schema migration test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+      var migrations = [
+        {version: 1, sql: 'CREATE TABLE items (id INTEGER PRIMARY KEY, name TEXT);'},
+        {version: 2, sql: "ALTER TABLE items ADD COLUMN price REAL;\nINSERT INTO items (name, price) VALUES ('first', 1.5);"}
+      ];
+
+        it(suiteName + 'migrations applied at open, then skipped at the next open', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'schema-migration-test.db';
+
+          // start with an empty database:
+          var db0 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+          db0.sqlBatch(['DROP TABLE IF EXISTS items', 'PRAGMA user_version=0'], function() {
+            db0.close(function() {
+              window.sqlitePlugin.openDatabase({name: dbname, location: 'default', migrations: migrations}, function(db) {
+                expect(db.migrations).toBeDefined();
+                expect(db.migrations.fromVersion).toBe(0);
+                expect(db.migrations.toVersion).toBe(2);
+                expect(db.migrations.applied.length).toBe(2);
+                expect(db.migrations.applied[1].version).toBe(2);
+                expect(db.migrations.applied[1].statements).toBe(2);
+
+                db.executeSql('SELECT name, price FROM items', [], function(rs) {
+                  expect(rs.rows.length).toBe(1);
+                  expect(rs.rows.item(0).price).toBe(1.5);
+
+                  db.close(function() {
+                    window.sqlitePlugin.openDatabase({name: dbname, location: 'default', migrations: migrations}, function(db2) {
+                      expect(db2.migrations.fromVersion).toBe(2);
+                      expect(db2.migrations.toVersion).toBe(2);
+                      expect(db2.migrations.applied.length).toBe(0);
+                      db2.close(done, done);
+                    });
+                  });
+                });
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                done();
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'failed migration rolled back with open error', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var dbname = 'schema-migration-test-2.db';
+
+          var db0 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+          db0.sqlBatch(['DROP TABLE IF EXISTS items', 'PRAGMA user_version=0'], function() {
+            db0.close(function() {
+              window.sqlitePlugin.openDatabase({name: dbname, location: 'default', migrations: [
+                migrations[0],
+                {version: 2, sql: 'ALTER TABLE no_such_table ADD COLUMN price REAL'}
+              ]}, function(db) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                db.close(done, done);
+              }, function(error) {
+                expect(error.message).toMatch(/Could not open database/);
+                expect(error.message).toMatch(/migration to version 2 failed/);
+
+                var db2 = window.sqlitePlugin.openDatabase({name: dbname, location: 'default'});
+                db2.executeSql('PRAGMA user_version', [], function(rs) {
+                  // none of the migrations applied:
+                  expect(rs.rows.item(0).user_version).toBe(0);
+                  db2.executeSql("SELECT COUNT(*) AS count FROM sqlite_master WHERE name='items'", [], function(rs2) {
+                    expect(rs2.rows.item(0).count).toBe(0);
+                    db2.close(done, done);
+                  });
+                });
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
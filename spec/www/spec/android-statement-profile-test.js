@@ -0,0 +1,112 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android statement profile test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'getStatementProfile with statements aggregated by normalized SQL', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'statement-profile-test.db', location: 'default', profile: true});
+
+          db.sqlBatch([
+            'DROP TABLE IF EXISTS tt',
+            'CREATE TABLE tt (id INTEGER PRIMARY KEY, data TEXT)',
+            "INSERT INTO tt VALUES (1, 'first')",
+            "INSERT INTO tt VALUES (2, 'second')",
+            ['INSERT INTO tt VALUES (?, ?)', [3, 'third']]
+          ], function() {
+            db.executeSql('SELECT * FROM tt WHERE id > 1', [], function(rs) {
+              // results are the same as without the profile option:
+              expect(rs.rows.length).toBe(2);
+              expect(rs.rows.item(0).data).toBe('second');
+
+              db.getStatementProfile({limit: 100, reset: true}, function(profile) {
+                expect(profile).toBeDefined();
+                expect(profile.statements).toBeDefined();
+
+                var stats = {};
+                profile.statements.forEach(function(s) { stats[s.sql] = s; });
+
+                var insertStats = stats['INSERT INTO tt VALUES (?, ?)'];
+                expect(insertStats).toBeDefined();
+                expect(insertStats.count).toBe(3);
+                expect(insertStats.changes).toBe(3);
+                expect(insertStats.maxTime).not.toBeGreaterThan(insertStats.totalTime);
+
+                var selectStats = stats['SELECT * FROM tt WHERE id > ?'];
+                expect(selectStats).toBeDefined();
+                expect(selectStats.count).toBe(1);
+                expect(selectStats.rows).toBe(2);
+
+                db.getStatementProfile(null, function(profile2) {
+                  // reset:
+                  expect(profile2.statements.length).toBe(0);
+                  db.close(done, done);
+                });
+
+              }, function(error) {
+                // NOT EXPECTED:
+                expect(false).toBe(true);
+                expect(error.message).toBe('--');
+                db.close(done, done);
+              });
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'batch error results with the profile option', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'statement-profile-test-2.db', location: 'default', profile: true});
+
+          db.transaction(function(tx) {
+            tx.executeSql('DROP TABLE IF EXISTS tt');
+            tx.executeSql('CREATE TABLE tt (data UNIQUE)');
+            tx.executeSql('INSERT INTO tt VALUES (?)', ['a']);
+            tx.executeSql('INSERT INTO tt VALUES (?)', ['a'], null, function(tx, error) {
+              expect(error).toBeDefined();
+              expect(error.message).toMatch(/UNIQUE constraint failed/);
+              // recover:
+              return false;
+            });
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+
+          }, function() {
+            db.executeSql('SELECT COUNT(*) AS c FROM tt', [], function(rs) {
+              expect(rs.rows.item(0).c).toBe(1);
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,90 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android statement timing test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'statement timing in result sets with setTiming', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'statement-timing-test.db', location: 'default'});
+
+          var insertResult = null;
+          var selectResult = null;
+
+          db.transaction(function(tx) {
+            tx.setTiming(true);
+            tx.executeSql('DROP TABLE IF EXISTS tt');
+            tx.executeSql('CREATE TABLE tt (data)');
+            tx.executeSql('INSERT INTO tt VALUES (?)', ['first'], function(tx, rs) {
+              insertResult = rs;
+            });
+            tx.executeSql('SELECT data FROM tt', [], function(tx, rs) {
+              selectResult = rs;
+            });
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          }, function() {
+            expect(insertResult.rowsAffected).toBe(1);
+            expect(insertResult.timing).toBeDefined();
+            expect(insertResult.timing.nativeTime).not.toBeLessThan(0);
+            expect(insertResult.timing.resultSize).toBeGreaterThan(0);
+
+            expect(selectResult.rows.length).toBe(1);
+            expect(selectResult.rows.item(0).data).toBe('first');
+            expect(selectResult.timing).toBeDefined();
+            expect(selectResult.timing.nativeTime).not.toBeLessThan(0);
+            expect(selectResult.timing.materializeTime).not.toBeLessThan(0);
+            // result with the row is larger:
+            expect(selectResult.timing.resultSize).toBeGreaterThan(insertResult.timing.resultSize);
+
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'no statement timing by default', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'statement-timing-test.db', location: 'default'});
+
+          db.executeSql('SELECT 1 AS value', [], function(rs) {
+            expect(rs.rows.item(0).value).toBe(1);
+            expect(rs.timing).not.toBeDefined();
+            db.close(done, done);
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,99 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': Android trace test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'exportTrace with trace events of a batch', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'trace-test.db', location: 'default', trace: true});
+
+          db.executeSql('SELECT UPPER(?) AS u', ['test'], function(rs) {
+            expect(rs.rows.item(0).u).toBe('TEST');
+
+            db.exportTrace(function(trace) {
+              expect(trace).toBeDefined();
+              expect(trace.traceEvents).toBeDefined();
+              expect(trace.traceEvents.length).toBe(6);
+
+              var names = trace.traceEvents.map(function(e) { return e.name + ':' + e.ph; });
+              expect(names).toEqual(['queued:b', 'queued:e', 'native:b', 'native:e', 'deliver:b', 'deliver:e']);
+
+              var first = trace.traceEvents[0];
+              for (var j=1; j<6; ++j) {
+                expect(trace.traceEvents[j].id).toBe(first.id);
+                expect(trace.traceEvents[j].ts).not.toBeLessThan(first.ts);
+              }
+
+              db.close(done, done);
+
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              db.close(done, done);
+            });
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'trace buffer keeps the latest events', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'trace-test.db', location: 'default', trace: true, traceBufferSize: 16});
+
+          var count = 0;
+          function next() {
+            if (++count < 10) return db.executeSql('SELECT 1', [], next);
+
+            db.exportTrace(function(trace) {
+              expect(trace.traceEvents.length).toBe(16);
+              db.close(done, done);
+            });
+          }
+          next();
+        }, MYTIMEOUT);
+
+        it(suiteName + 'exportTrace error if trace is not enabled', function(done) {
+          if (!isAndroid) pending('SKIP for iOS/macOS/Windows');
+
+          var db = window.sqlitePlugin.openDatabase({name: 'trace-test-2.db', location: 'default'});
+
+          db.exportTrace(function(trace) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            db.close(done, done);
+
+          }, function(error) {
+            expect(error).toBeDefined();
+            expect(error.message).toMatch(/trace is not enabled/);
+            db.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
@@ -0,0 +1,116 @@
+/* 'use strict'; */
+
+var MYTIMEOUT = 20000;
+
+var isWindows = /Windows /.test(navigator.userAgent); // Windows
+var isAndroid = !isWindows && /Android/.test(navigator.userAgent);
+
+var pluginScenarioList = [
+  isAndroid ? 'Plugin-implementation-default' : 'Plugin',
+  'Plugin-implementation-2'
+];
+
+var pluginScenarioCount = 1;
+
+var mytests = function() {
+
+  for (var i=0; i<pluginScenarioCount; ++i) {
+
+    describe(pluginScenarioList[i] + ': sharded database test(s)', function() {
+      var scenarioName = pluginScenarioList[i];
+      var suiteName = scenarioName + ': ';
+
+        it(suiteName + 'route inserts by shard key and query all shards', function(done) {
+          window.sqlitePlugin.openShardedDatabase({name: 'sharded-test.db', location: 'default', shards: 4}, function(sdb) {
+            expect(sdb.shards.length).toBe(4);
+
+            sdb.sqlBatchAll([
+              'DROP TABLE IF EXISTS events',
+              'CREATE TABLE events (device, data)'
+            ], function() {
+              var remaining = 20;
+              var insertError = null;
+
+              for (var j=0; j<20; ++j) {
+                var device = 'device-' + j;
+                sdb.executeSql(device, 'INSERT INTO events VALUES (?,?)', [device, j], function() {
+                  if (--remaining === 0) checkResults();
+                }, function(error) {
+                  insertError = error;
+                  if (--remaining === 0) checkResults();
+                });
+              }
+
+              function checkResults() {
+                expect(insertError).toBe(null);
+
+                sdb.executeSqlAll('SELECT * FROM events', [], function(rs) {
+                  expect(rs.rows.length).toBe(20);
+
+                  // each record is stored in the shard for its key:
+                  sdb.shard('device-7').executeSql('SELECT data FROM events WHERE device=?', ['device-7'], function(rs2) {
+                    expect(rs2.rows.length).toBe(1);
+                    expect(rs2.rows.item(0).data).toBe(7);
+                    sdb.close(done, done);
+                  });
+
+                }, function(error) {
+                  // NOT EXPECTED:
+                  expect(false).toBe(true);
+                  expect(error.message).toBe('--');
+                  sdb.close(done, done);
+                });
+              }
+
+            }, function(error) {
+              // NOT EXPECTED:
+              expect(false).toBe(true);
+              expect(error.message).toBe('--');
+              sdb.close(done, done);
+            });
+
+          }, function(error) {
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+            expect(error.message).toBe('--');
+            done();
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'same shard for the same key', function(done) {
+          var sdb = window.sqlitePlugin.openShardedDatabase({name: 'sharded-test.db', location: 'default', shards: 4}, function() {
+            expect(sdb.shardIndex('abc')).toBe(sdb.shardIndex('abc'));
+            expect(sdb.shardIndex(123)).toBe(sdb.shardIndex('123'));
+            expect(sdb.shardIndex('abc')).toBeLessThan(4);
+            sdb.close(done, done);
+          });
+        }, MYTIMEOUT);
+
+        it(suiteName + 'openShardedDatabase with invalid shards value', function() {
+          try {
+            window.sqlitePlugin.openShardedDatabase({name: 'sharded-test.db', location: 'default', shards: 0});
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+          } catch (e) {
+            expect(e.message).toMatch(/openShardedDatabase expects an options object with name and shards values/);
+          }
+
+          try {
+            window.sqlitePlugin.openShardedDatabase({name: 'sharded-test.db', location: 'default', shards: 2.5});
+            // NOT EXPECTED:
+            expect(false).toBe(true);
+          } catch (e) {
+            expect(e.message).toMatch(/shards value must be a positive integer/);
+          }
+        });
+
+    });
+
+  }
+
+}
+
+if (window.hasBrowser) mytests();
+else exports.defineAutoTests = mytests;
+
+/* vim: set expandtab : */
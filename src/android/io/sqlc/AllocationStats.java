@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import android.os.Debug;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Allocation accounting of the flat JSON batch requests of a database
+ * (allocationStats open option), reported by the getDatabaseStats action.
+ *
+ * The bytes & objects allocated on the DBRunner thread for each batch,
+ * including the JSON result string from the native library and the
+ * plugin result object, are measured with the thread allocation counters
+ * of android.os.Debug. The result delivery on the delivery thread is not
+ * included.
+ *
+ * NOTE: Allocation counting is enabled for the whole process while any
+ * database with this option is open, with some overhead for each allocation.
+ * The counters may stay at 0 on platform versions that do not support
+ * thread allocation counting.
+ *
+ * NOTE: begin() & end() must be called from the DBRunner thread.
+ */
+@SuppressWarnings("deprecation")
+final class AllocationStats {
+    // number of databases open with allocation counting enabled:
+    private static int activeCount = 0;
+
+    private long startBytes;
+    private long startObjects;
+
+    private long batches = 0;
+    private long bytes = 0;
+    private long objects = 0;
+    private long maxBytes = 0;
+    private long maxObjects = 0;
+
+    private boolean started = false;
+
+    /**
+     * Start allocation counting (once the database is open).
+     */
+    void start() {
+        synchronized (AllocationStats.class) {
+            if (started) return;
+            started = true;
+            if (activeCount++ == 0) Debug.startAllocCounting();
+        }
+    }
+
+    /**
+     * Stop allocation counting (once the last database with allocation stats is closed).
+     */
+    void stop() {
+        synchronized (AllocationStats.class) {
+            if (!started) return;
+            started = false;
+            if (--activeCount == 0) Debug.stopAllocCounting();
+        }
+    }
+
+    void begin() {
+        startBytes = Debug.getThreadAllocSize();
+        startObjects = Debug.getThreadAllocCount();
+    }
+
+    void end() {
+        final long b = Debug.getThreadAllocSize() - startBytes;
+        final long o = Debug.getThreadAllocCount() - startObjects;
+
+        synchronized (this) {
+            ++batches;
+            bytes += b;
+            objects += o;
+            if (b > maxBytes) maxBytes = b;
+            if (o > maxObjects) maxObjects = o;
+        }
+    }
+
+    synchronized void reset() {
+        batches = bytes = objects = maxBytes = maxObjects = 0;
+    }
+
+    /**
+     * @return {"batches":n,"bytes":n,"objects":n,"maxBytes":n,"maxObjects":n,"bytesPerBatch":n,"objectsPerBatch":n}
+     */
+    synchronized JSONObject toJSON() throws JSONException {
+        JSONObject o = new JSONObject();
+        o.put("batches", batches);
+        o.put("bytes", bytes);
+        o.put("objects", objects);
+        o.put("maxBytes", maxBytes);
+        o.put("maxObjects", maxObjects);
+        o.put("bytesPerBatch", (batches > 0) ? bytes / batches : 0);
+        o.put("objectsPerBatch", (batches > 0) ? objects / batches : 0);
+        return o;
+    }
+}
+
+/* vim: set expandtab : */
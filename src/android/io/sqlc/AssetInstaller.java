@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import java.security.MessageDigest;
+
+import java.sql.SQLException;
+
+/**
+ * Installs a pre-populated database file from the app assets
+ * (createFromAsset open option) before the database is opened.
+ *
+ * The asset is copied with NIO channel transfers into a temporary file
+ * which then replaces the database file (atomic rename), so that the
+ * database file is never left partially written. The copy is skipped if
+ * the database file exists, unless the asset version (createFromAssetVersion
+ * option) differs from the version recorded in a sidecar file when the
+ * asset was last installed.
+ */
+final class AssetInstaller {
+    // chunk size for compressed assets & checksum:
+    private static final int CHUNK_SIZE = 1024*1024;
+
+    private static final String VERSION_SUFFIX = "-asset-version";
+
+    private AssetInstaller() {
+    }
+
+    /**
+     * Install the asset into the database file location, if needed.
+     *
+     * @param assets    app asset manager
+     * @param assetPath asset path (such as www/seed.db)
+     * @param dbFile    database file
+     * @param version   asset version (null: install only if the database file does not exist)
+     * @param sha256    expected SHA-256 checksum in hex (null: not checked)
+     *
+     * @return true if the asset was installed
+     */
+    static boolean install(AssetManager assets, String assetPath, File dbFile, String version, String sha256)
+            throws Exception {
+        File versionFile = new File(dbFile.getPath() + VERSION_SUFFIX);
+
+        if (dbFile.exists() && (version == null || version.equals(readVersion(versionFile))))
+            return false;
+
+        File tmpFile = new File(dbFile.getPath() + "-asset");
+
+        try {
+            copyAsset(assets, assetPath, tmpFile);
+
+            if (sha256 != null) {
+                String actual = sha256Hex(tmpFile);
+                if (!actual.equalsIgnoreCase(sha256))
+                    throw new SQLException("checksum mismatch for asset: " + assetPath + " (SHA-256: " + actual + ")");
+            }
+
+            // remove any stale journal files that do not belong to the new file,
+            // then replace the database file (atomic rename):
+            MemorySnapshot.deleteJournalFiles(dbFile);
+            if (!tmpFile.renameTo(dbFile))
+                throw new SQLException("could not rename asset database file: " + tmpFile.getPath());
+        } catch (Exception e) {
+            tmpFile.delete();
+            throw e;
+        }
+
+        if (version != null) {
+            writeVersion(versionFile, version);
+        } else {
+            versionFile.delete();
+        }
+
+        Log.v(AssetInstaller.class.getSimpleName(), "installed asset " + assetPath + " to " + dbFile.getPath());
+        return true;
+    }
+
+    private static void copyAsset(AssetManager assets, String assetPath, File toFile) throws IOException {
+        FileOutputStream out = new FileOutputStream(toFile);
+        try {
+            FileChannel outChannel = out.getChannel();
+
+            AssetFileDescriptor afd = null;
+            try {
+                afd = assets.openFd(assetPath);
+            } catch (FileNotFoundException e) {
+                // compressed asset (no file descriptor), copy from the stream below
+            }
+
+            if (afd != null) {
+                // uncompressed asset: direct channel transfer from its range in the APK file
+                try {
+                    FileInputStream in = afd.createInputStream();
+                    try {
+                        FileChannel inChannel = in.getChannel();
+                        final long start = afd.getStartOffset();
+                        final long length = afd.getLength();
+                        long pos = 0;
+                        while (pos < length) {
+                            long n = inChannel.transferTo(start + pos, length - pos, outChannel);
+                            if (n <= 0) throw new IOException("unexpected end of asset: " + assetPath);
+                            pos += n;
+                        }
+                    } finally {
+                        in.close();
+                    }
+                } finally {
+                    afd.close();
+                }
+            } else {
+                ReadableByteChannel inChannel = Channels.newChannel(assets.open(assetPath));
+                try {
+                    long pos = 0;
+                    for (;;) {
+                        long n = outChannel.transferFrom(inChannel, pos, CHUNK_SIZE);
+                        if (n <= 0) break;
+                        pos += n;
+                    }
+                } finally {
+                    inChannel.close();
+                }
+            }
+
+            outChannel.force(true);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String sha256Hex(File f) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+        FileInputStream in = new FileInputStream(f);
+        try {
+            FileChannel channel = in.getChannel();
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            in.close();
+        }
+
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b: md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static String readVersion(File versionFile) {
+        if (!versionFile.exists()) return null;
+        try {
+            FileInputStream in = new FileInputStream(versionFile);
+            try {
+                byte[] data = new byte[(int)versionFile.length()];
+                int n = 0;
+                while (n < data.length) {
+                    int r = in.read(data, n, data.length - n);
+                    if (r < 0) break;
+                    n += r;
+                }
+                return new String(data, 0, n, "UTF-8");
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.e(AssetInstaller.class.getSimpleName(), "couldn't read asset version file", e);
+            return null;
+        }
+    }
+
+    private static void writeVersion(File versionFile, String version) throws IOException {
+        File tmpFile = new File(versionFile.getPath() + "-tmp");
+        FileOutputStream out = new FileOutputStream(tmpFile);
+        try {
+            out.write(version.getBytes("UTF-8"));
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(versionFile))
+            throw new IOException("could not rename asset version file: " + tmpFile.getPath());
+    }
+}
+
+/* vim: set expandtab : */
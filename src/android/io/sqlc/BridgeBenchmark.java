@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+/**
+ * Builds the result payloads for the bridgeBenchmark action, to measure
+ * the Cordova bridge round-trip cost without any database access.
+ *
+ * Result object (shapes other than binary):
+ * {"receivedAt":ms,"requestLength":n,"payload":...,"buildTime":ms,"sentAt":ms}
+ */
+final class BridgeBenchmark {
+    // data value length of each row (rows & flat shapes):
+    private static final int ROW_DATA_LENGTH = 64;
+
+    // approximate JSON length of each row:
+    private static final int ROW_LENGTH = ROW_DATA_LENGTH + 32;
+
+    private BridgeBenchmark() {
+    }
+
+    /**
+     * @param shape         "string", "rows" (JSON row objects), or "flat" (fj-style flat array)
+     * @param size          approximate payload size in bytes
+     * @param receivedAt    time when the request was received (ms since epoch)
+     * @param requestLength length of the request data string
+     */
+    static String resultJSON(String shape, int size, long receivedAt, int requestLength) {
+        final long start = System.nanoTime();
+
+        StringBuilder sb = new StringBuilder(size + 128);
+        sb.append("{\"receivedAt\":").append(receivedAt);
+        sb.append(",\"requestLength\":").append(requestLength);
+        sb.append(",\"payload\":");
+
+        if (shape.equals("string")) {
+            sb.append('"');
+            appendData(sb, size);
+            sb.append('"');
+        } else if (shape.equals("flat")) {
+            // same layout as a flat JSON (fj) batch result with rows:
+            final int rows = (size + ROW_LENGTH - 1) / ROW_LENGTH;
+            sb.append("[\"okrows\"");
+            for (int i = 0; i < rows; ++i) {
+                sb.append(",2,\"id\",").append(i).append(",\"data\",\"");
+                appendData(sb, ROW_DATA_LENGTH);
+                sb.append('"');
+            }
+            sb.append(",\"endrows\"]");
+        } else {
+            final int rows = (size + ROW_LENGTH - 1) / ROW_LENGTH;
+            sb.append('[');
+            for (int i = 0; i < rows; ++i) {
+                if (i > 0) sb.append(',');
+                sb.append("{\"id\":").append(i).append(",\"data\":\"");
+                appendData(sb, ROW_DATA_LENGTH);
+                sb.append("\"}");
+            }
+            sb.append(']');
+        }
+
+        sb.append(",\"buildTime\":").append((System.nanoTime() - start) / 1e6);
+        sb.append(",\"sentAt\":").append(System.currentTimeMillis());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * @return binary payload (received as an ArrayBuffer on the Javascript side)
+     */
+    static byte[] binaryPayload(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; ++i) data[i] = (byte)i;
+        return data;
+    }
+
+    private static void appendData(StringBuilder sb, int length) {
+        for (int i = 0; i < length; ++i) sb.append((char)('a' + (i % 26)));
+    }
+}
+
+/* vim: set expandtab : */
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Retry policy for read-only flat JSON batch requests that fail with
+ * SQLITE_BUSY or SQLITE_LOCKED (busyRetries open option), such as a
+ * parallel reader while another handle holds an exclusive lock.
+ *
+ * A batch is read-only in case each statement starts with SELECT, VALUES,
+ * or EXPLAIN, with an optional BEGIN statement at the start (first batch
+ * of a read transaction). Each retry waits with exponential backoff, from
+ * the initial delay up to MAX_DELAY.
+ *
+ * NOTE: The busy error is detected from the error message since the
+ * flat JSON batch result has the Web SQL error code.
+ *
+ * NOTE: Methods must be called from the DBRunner thread.
+ */
+final class BusyRetryPolicy {
+    static final long DEFAULT_INITIAL_DELAY = 20;
+
+    static final long MAX_DELAY = 1000;
+
+    // batch kinds:
+    static final int NOT_READ_ONLY = 0;
+    static final int READ_ONLY = 1;
+    static final int READ_ONLY_WITH_BEGIN = 2;
+
+    final int maxRetries;
+
+    private final long initialDelay;
+
+    private long retries = 0;
+    private long recovered = 0;
+    private long failed = 0;
+
+    BusyRetryPolicy(int maxRetries, long initialDelay) {
+        this.maxRetries = maxRetries;
+        this.initialDelay = Math.max(initialDelay, 1);
+    }
+
+    /**
+     * @param attempt   retry number (starting with 0)
+     *
+     * @return delay in milliseconds before the retry
+     */
+    long delay(int attempt) {
+        long d = initialDelay;
+        for (int i = 0; i < attempt && d < MAX_DELAY; ++i) d *= 2;
+        return Math.min(d, MAX_DELAY);
+    }
+
+    void retried() {
+        ++retries;
+    }
+
+    void recovered() {
+        ++recovered;
+    }
+
+    void failed() {
+        ++failed;
+    }
+
+    /**
+     * @return {"retries":n,"recovered":n,"failed":n}
+     */
+    JSONObject toJSON() throws JSONException {
+        JSONObject o = new JSONObject();
+        o.put("retries", retries);
+        o.put("recovered", recovered);
+        o.put("failed", failed);
+        return o;
+    }
+
+    /**
+     * @return true if the first error of a flat JSON batch result is SQLITE_BUSY or SQLITE_LOCKED
+     * (with a quick check before the result is parsed)
+     */
+    static boolean hasBusyError(String flatResult) throws JSONException {
+        if (flatResult.indexOf(" is locked") < 0) return false;
+        final String message = FlatBatch.firstErrorMessage(flatResult);
+        return message != null && isBusyMessage(message);
+    }
+
+    /**
+     * @return true for the SQLITE_BUSY message ("database is locked") or a
+     * SQLITE_LOCKED message ("database table is locked", "database schema is locked")
+     */
+    static boolean isBusyMessage(String message) {
+        return message.indexOf("database is locked") >= 0 ||
+            message.indexOf("database table is locked") >= 0 ||
+            message.indexOf("database schema is locked") >= 0;
+    }
+
+    /**
+     * @return NOT_READ_ONLY, READ_ONLY, or READ_ONLY_WITH_BEGIN
+     */
+    static int batchKind(String fj) throws JSONException {
+        JSONArray a = new JSONArray(fj);
+        final int count = a.getInt(1);
+        int kind = READ_ONLY;
+        int i = 2;
+
+        for (int s = 0; s < count; ++s) {
+            final String keyword = FlatBatch.firstKeyword(a.getString(i++));
+            i += 1 + a.getInt(i);
+
+            if (s == 0 && keyword.equals("BEGIN")) {
+                kind = READ_ONLY_WITH_BEGIN;
+            } else if (!keyword.equals("SELECT") && !keyword.equals("VALUES") && !keyword.equals("EXPLAIN")) {
+                return NOT_READ_ONLY;
+            }
+        }
+
+        return kind;
+    }
+}
+
+/* vim: set expandtab : */
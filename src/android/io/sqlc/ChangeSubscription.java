@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+
+import org.apache.cordova.CallbackContext;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Table change notifications for a database (subscribeChanges action).
+ *
+ * Since the native driver library does not expose the sqlite update hook,
+ * the changed rowids are recorded by TEMP triggers (on this connection only)
+ * into a TEMP table. After each request that changed the database, with no
+ * transaction in progress (committed), the recorded changes are coalesced
+ * into a single notification which is sent to the subscription callback
+ * (kept for more notifications).
+ *
+ * Subscribed: {"subscribed":true,"tables":[...]}
+ *
+ * Notification: {"progress":{"changes":{"table":{"count":n,"rowids":[...]}}}}
+ * (rowids omitted in case more than MAX_ROWIDS rows of a table were changed,
+ * or null for a table WITHOUT ROWID)
+ *
+ * Final notification (unsubscribed, subscribed again, or database closed),
+ * with the callback released: {"progress":{"unsubscribed":true}}
+ *
+ * NOTE: With no table names given, the tables are listed once when subscribed,
+ * tables created later are not watched.
+ *
+ * NOTE: Methods must be called from the DBRunner thread.
+ */
+final class ChangeSubscription {
+    static final int MAX_ROWIDS = 1000;
+
+    private static final String CHANGES_TABLE = "sqlc_changes";
+
+    private static final String[] TRIGGER_EVENTS = { "INSERT", "UPDATE", "DELETE" };
+
+    private final int dbid;
+
+    private final CallbackContext cbc;
+
+    private final ArrayList<String> tables = new ArrayList<String>();
+
+    // total changes after the last check:
+    private int lastChanges;
+
+    private ChangeSubscription(int dbid, CallbackContext cbc) {
+        this.dbid = dbid;
+        this.cbc = cbc;
+    }
+
+    /**
+     * Create the changes table & triggers.
+     *
+     * @param tableNames   tables to watch (null: all tables)
+     */
+    static ChangeSubscription start(SQLitePlugin.SQLiteNativeDatabase mydb, int dbid, JSONArray tableNames,
+            CallbackContext cbc) throws Exception {
+        ChangeSubscription s = new ChangeSubscription(dbid, cbc);
+
+        if (tableNames != null) {
+            for (int i = 0; i < tableNames.length(); ++i) s.tables.add(tableNames.getString(i));
+        } else {
+            FlatBatch b = new FlatBatch(dbid).sql(
+              "SELECT name FROM sqlite_master WHERE type='table' AND name NOT LIKE 'sqlite_%'");
+            for (Object[] row: FlatBatch.firstResultRows(mydb.executeBatchOrThrow(b)))
+                s.tables.add((String)row[0]);
+        }
+
+        try {
+            mydb.executeBatchOrThrow(new FlatBatch(dbid).sql(
+              "CREATE TEMP TABLE IF NOT EXISTS " + CHANGES_TABLE + " (tbl TEXT, rid INTEGER)"));
+
+            for (int t = 0; t < s.tables.size(); ++t) {
+                final String table = s.tables.get(t);
+
+                StringBuilder target = new StringBuilder("main.");
+                SQLitePlugin.appendQuotedIdentifier(target, table);
+
+                // NULL rowid for a table WITHOUT ROWID:
+                final boolean hasRowid =
+                    FlatBatch.firstErrorMessage(mydb.executeBatch(new FlatBatch(dbid).sql(
+                      "SELECT rowid FROM " + target + " LIMIT 0"))) == null;
+
+                FlatBatch b = new FlatBatch(dbid);
+                for (String event: TRIGGER_EVENTS) {
+                    final String row = event.equals("DELETE") ? "OLD" : "NEW";
+
+                    StringBuilder sb = new StringBuilder();
+                    sb.append("CREATE TEMP TRIGGER ").append(triggerName(t, event));
+                    sb.append(" AFTER ").append(event).append(" ON ").append(target);
+                    sb.append(" BEGIN INSERT INTO ").append(CHANGES_TABLE).append(" VALUES ('");
+                    sb.append(table.replace("'", "''")).append("', ");
+                    sb.append(hasRowid ? row + ".rowid" : "NULL").append("); END");
+                    b.sql(sb.toString());
+                }
+                mydb.executeBatchOrThrow(b);
+            }
+        } catch (Exception e) {
+            s.dropTriggers(mydb);
+            throw e;
+        }
+
+        s.lastChanges = mydb.totalChanges();
+
+        JSONObject r = new JSONObject();
+        r.put("subscribed", true);
+        r.put("tables", new JSONArray(s.tables));
+        s.send(r, false, true);
+
+        return s;
+    }
+
+    /**
+     * Send a notification in case the database was changed by the last request
+     * (once committed).
+     */
+    void afterRequest(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        if (mydb.totalChanges() == lastChanges) return;
+
+        // BEGIN fails in case a transaction is in progress (not yet committed):
+        try {
+            if (FlatBatch.firstErrorMessage(mydb.executeBatch(new FlatBatch(dbid).sql("BEGIN"))) != null)
+                return;
+        } catch (JSONException e) {
+            // not expected
+            Log.e(ChangeSubscription.class.getSimpleName(), "unexpected batch result", e);
+            return;
+        }
+
+        try {
+            ArrayList<Object[]> counts = FlatBatch.firstResultRows(mydb.executeBatchOrThrow(new FlatBatch(dbid).sql(
+              "SELECT tbl, COUNT(DISTINCT IFNULL(rid, rowid)), MAX(rid IS NULL) FROM " + CHANGES_TABLE +
+              " GROUP BY tbl")));
+
+            JSONObject changes = new JSONObject();
+
+            if (counts.size() > 0) {
+                ArrayList<Object[]> rowids = FlatBatch.firstResultRows(mydb.executeBatchOrThrow(new FlatBatch(dbid).sql(
+                  "SELECT DISTINCT tbl, rid FROM " + CHANGES_TABLE + " WHERE rid IS NOT NULL AND tbl IN" +
+                  " (SELECT tbl FROM " + CHANGES_TABLE + " GROUP BY tbl HAVING COUNT(DISTINCT rid) <= " +
+                  MAX_ROWIDS + ") ORDER BY tbl, rid")));
+
+                for (Object[] row: counts) {
+                    JSONObject t = new JSONObject();
+                    t.put("count", ((Number)row[1]).longValue());
+                    if (((Number)row[2]).intValue() != 0) t.put("rowids", JSONObject.NULL);
+                    changes.put((String)row[0], t);
+                }
+
+                for (Object[] row: rowids) {
+                    JSONObject t = changes.getJSONObject((String)row[0]);
+                    if (!t.has("rowids")) t.put("rowids", new JSONArray());
+                    t.getJSONArray("rowids").put(((Number)row[1]).longValue());
+                }
+
+                mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("DELETE FROM " + CHANGES_TABLE));
+            }
+
+            mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("COMMIT"));
+
+            if (changes.length() > 0) {
+                JSONObject r = new JSONObject();
+                r.put("changes", changes);
+                send(r, true, true);
+            }
+        } catch (Exception e) {
+            Log.e(ChangeSubscription.class.getSimpleName(), "couldn't read table changes", e);
+            mydb.executeBatch(new FlatBatch(dbid).sql("ROLLBACK"));
+        }
+
+        lastChanges = mydb.totalChanges();
+    }
+
+    /**
+     * Drop the triggers & changes table (no more notifications),
+     * and send the final notification.
+     */
+    void stop(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        dropTriggers(mydb);
+        sendFinal();
+    }
+
+    /**
+     * Send the final notification in case the database is closed
+     * (with the TEMP triggers & table dropped by the close).
+     */
+    void closed() {
+        sendFinal();
+    }
+
+    private void sendFinal() {
+        try {
+            JSONObject r = new JSONObject();
+            r.put("unsubscribed", true);
+            send(r, true, false);
+        } catch (JSONException e) {
+            // not expected
+            Log.e(ChangeSubscription.class.getSimpleName(), "couldn't send final notification", e);
+        }
+    }
+
+    private void dropTriggers(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        FlatBatch b = new FlatBatch(dbid);
+        for (int t = 0; t < tables.size(); ++t)
+            for (String event: TRIGGER_EVENTS)
+                b.sql("DROP TRIGGER IF EXISTS temp." + triggerName(t, event));
+        b.sql("DROP TABLE IF EXISTS temp." + CHANGES_TABLE);
+
+        try {
+            mydb.executeBatchOrThrow(b);
+        } catch (Exception e) {
+            // (expected in case a transaction is in progress)
+            Log.e(ChangeSubscription.class.getSimpleName(), "couldn't drop change triggers", e);
+        }
+    }
+
+    private static String triggerName(int t, String event) {
+        return CHANGES_TABLE + "_" + t + "_" + event.toLowerCase();
+    }
+
+    /**
+     * Send a result to the subscription callback.
+     *
+     * @param progress  send as progress (notification) on the Javascript side
+     * @param keep      keep the callback for more notifications
+     */
+    private void send(JSONObject r, boolean progress, boolean keep) throws JSONException {
+        if (progress) {
+            JSONObject p = new JSONObject();
+            p.put("progress", r);
+            r = p;
+        }
+        SQLitePlugin.MyPluginResult pr = new SQLitePlugin.MyPluginResult(r.toString());
+        pr.setKeepCallback(keep);
+        cbc.sendPluginResult(pr);
+    }
+}
+
+/* vim: set expandtab : */
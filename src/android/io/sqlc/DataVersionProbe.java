@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.io.File;
+
+import java.sql.SQLException;
+
+import java.util.ArrayList;
+
+/**
+ * Read-only probe handle to a database file for the getDataVersion action,
+ * which is answered in the calling thread without waiting for the DBRunner
+ * queue.
+ *
+ * PRAGMA data_version on the probe handle changes whenever another
+ * connection (including the DBRunner db handle) commits a change to the
+ * database file.
+ *
+ * NOTE: The probe handle is opened on the first call.
+ *
+ * NOTE: Only used for a database in WAL mode with the NORMAL locking mode
+ * (as checked when opened): in rollback journal mode the SHARED lock of the
+ * probe handle may cause a COMMIT on the DBRunner db handle to fail with
+ * SQLITE_BUSY, and the EXCLUSIVE locking mode keeps the probe handle
+ * locked out.
+ */
+final class DataVersionProbe {
+    private final File dbFile;
+
+    private SQLitePlugin.SQLiteNativeDatabase probedb = null;
+
+    private long lastDataVersion = 0;
+
+    private boolean closed = false;
+
+    DataVersionProbe(File dbFile) {
+        this.dbFile = dbFile;
+    }
+
+    /**
+     * Check if a probe handle can be used with the DBRunner db handle.
+     */
+    static boolean isSupported(SQLitePlugin.SQLiteNativeDatabase mydb, int dbid) throws Exception {
+        return "wal".equals(pragmaValue(mydb, dbid, "PRAGMA journal_mode")) &&
+            "normal".equals(pragmaValue(mydb, dbid, "PRAGMA locking_mode"));
+    }
+
+    private static Object pragmaValue(SQLitePlugin.SQLiteNativeDatabase mydb, int dbid, String sql) throws Exception {
+        ArrayList<Object[]> rows = FlatBatch.firstResultRows(mydb.executeBatchOrThrow(new FlatBatch(dbid).sql(sql)));
+        return (rows.size() == 1) ? rows.get(0)[0] : null;
+    }
+
+    /**
+     * @return PRAGMA data_version on the probe handle, or the last known value
+     * in case the database file is locked by a writer
+     */
+    synchronized long dataVersion() throws Exception {
+        if (closed) throw new SQLException("database closed");
+
+        if (probedb == null) {
+            SQLitePlugin.SQLiteNativeDatabase mydb = new SQLitePlugin.SQLiteNativeDatabase();
+            mydb.openReadOnly(dbFile, false);
+            probedb = mydb;
+        }
+
+        try {
+            lastDataVersion = probedb.queryLong("PRAGMA data_version");
+        } catch (SQLException e) {
+            // (expected in case of an exclusive lock in rollback journal mode)
+        }
+
+        return lastDataVersion;
+    }
+
+    synchronized void close() {
+        closed = true;
+        if (probedb != null) probedb.closeDatabaseNow();
+        probedb = null;
+    }
+}
+
+/* vim: set expandtab : */
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Builds a flat JSON (fj) batch request for internal use by the DBRunner,
+ * in the same format that is sent by the Javascript side:
+ *
+ * [dbid, count, sql, param_count, params..., ..., "extra"]
+ *
+ * NOTE: The internal StringBuilder is kept by reset() so that the same
+ * instance can be reused for a number of batches.
+ */
+final class FlatBatch {
+    private final int dbid;
+
+    private final StringBuilder body = new StringBuilder();
+
+    private int statementCount = 0;
+
+    private int elementCount = 0;
+
+    // first keywords of statements with effects that are not undone by ROLLBACK,
+    // or that end or break the transaction:
+    private static final String[] NON_TRANSACTIONAL_KEYWORDS = {
+        "ATTACH", "DETACH", "PRAGMA", "BEGIN", "COMMIT", "END", "ROLLBACK", "SAVEPOINT", "RELEASE", "VACUUM"
+    };
+
+    private static final Pattern NON_TRANSACTIONAL_WORD = Pattern.compile(
+        "\\b(ATTACH|DETACH|PRAGMA|BEGIN|COMMIT|END|ROLLBACK|SAVEPOINT|RELEASE|VACUUM)\\b", Pattern.CASE_INSENSITIVE);
+
+    FlatBatch(int dbid) {
+        this.dbid = dbid;
+    }
+
+    void reset() {
+        body.setLength(0);
+        statementCount = 0;
+        elementCount = 0;
+    }
+
+    int statementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Start a statement with the given number of parameters
+     * (to be followed by exactly paramCount param calls).
+     */
+    FlatBatch sql(String sql, int paramCount) {
+        appendQuoted(body, sql);
+        body.append(',').append(paramCount).append(',');
+        elementCount += 2;
+        ++statementCount;
+        return this;
+    }
+
+    FlatBatch sql(String sql) {
+        return sql(sql, 0);
+    }
+
+    FlatBatch param(String value) {
+        if (value == null) return paramNull();
+        appendQuoted(body, value);
+        body.append(',');
+        ++elementCount;
+        return this;
+    }
+
+    FlatBatch param(long value) {
+        body.append(value).append(',');
+        ++elementCount;
+        return this;
+    }
+
+    FlatBatch param(double value) {
+        body.append(value).append(',');
+        ++elementCount;
+        return this;
+    }
+
+    FlatBatch paramNull() {
+        body.append("null,");
+        ++elementCount;
+        return this;
+    }
+
+    /**
+     * Add a parameter value that is already encoded as a JSON value.
+     */
+    FlatBatch paramRaw(String json) {
+        body.append(json).append(',');
+        ++elementCount;
+        return this;
+    }
+
+    /**
+     * Add a parameter value from a JSON (org.json) or Java object.
+     */
+    FlatBatch param(Object value) {
+        if (value == null || value == JSONObject.NULL) return paramNull();
+        if (value instanceof Float || value instanceof Double) return param(((Number)value).doubleValue());
+        if (value instanceof Number) return param(((Number)value).longValue());
+        if (value instanceof Boolean) return param(((Boolean)value).booleanValue() ? 1L : 0L);
+        return param(value.toString());
+    }
+
+    String toJSON() {
+        StringBuilder sb = new StringBuilder(body.length() + 32);
+        sb.append('[').append(dbid).append(',').append(statementCount).append(',');
+        sb.append(body);
+        sb.append("\"extra\"]");
+        return sb.toString();
+    }
+
+    /**
+     * Token limit needed by the native JSON parser
+     * (same as the value computed on the Javascript side).
+     */
+    int tokenLimit() {
+        // dbid, count & "extra", plus overhead with extra space:
+        return elementCount + 3 + 10;
+    }
+
+    /**
+     * Get the first error message from a flat JSON batch result
+     * (walked in the same way as in the Javascript result callback).
+     *
+     * @return error message or null if all statements succeeded
+     */
+    static String firstErrorMessage(String flatResult) throws JSONException {
+        FlatResultScanner r = new FlatResultScanner(flatResult);
+
+        while (r.hasNext()) {
+            if (r.nextIs("ch2")) {
+                r.skip(3);
+            } else if (r.nextIs("okrows")) {
+                r.skip(1);
+                r.skipRows();
+            } else if (r.nextIs("error")) {
+                r.skip(3);
+                return r.nextString();
+            } else if (r.nextIs("batcherror")) {
+                r.skip(1);
+                return r.nextString();
+            } else {
+                // "ok" or "extra"
+                r.skip(1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the index of the first failed statement from a flat JSON batch result.
+     *
+     * @return statement index (0 for a batch error), or -1 if all statements succeeded
+     */
+    static int firstErrorIndex(String flatResult) throws JSONException {
+        FlatResultScanner r = new FlatResultScanner(flatResult);
+        int index = 0;
+
+        while (r.hasNext()) {
+            if (r.nextIs("ch2")) {
+                r.skip(3);
+            } else if (r.nextIs("okrows")) {
+                r.skip(1);
+                r.skipRows();
+            } else if (r.nextIs("error")) {
+                return index;
+            } else if (r.nextIs("batcherror")) {
+                return 0;
+            } else if (r.nextIs("extra")) {
+                break;
+            } else {
+                // "ok"
+                r.skip(1);
+            }
+            ++index;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return true if any statement of a flat JSON batch result failed
+     * (with a quick check before the result is parsed)
+     */
+    static boolean hasError(String flatResult) throws JSONException {
+        if (flatResult.indexOf("\"error\"") < 0 && flatResult.indexOf("\"batcherror\"") < 0) return false;
+        return firstErrorMessage(flatResult) != null;
+    }
+
+    /**
+     * @return true if any statement of a flat JSON batch request starts with
+     * one of the NON_TRANSACTIONAL_KEYWORDS (with a quick check before the
+     * request is parsed)
+     */
+    static boolean hasNonTransactionalStatement(String fj) throws JSONException {
+        if (!NON_TRANSACTIONAL_WORD.matcher(fj).find()) return false;
+
+        JSONArray a = new JSONArray(fj);
+        final int count = a.getInt(1);
+        int i = 2;
+
+        for (int s = 0; s < count; ++s) {
+            final String keyword = firstKeyword(a.getString(i++));
+            i += 1 + a.getInt(i);
+
+            for (String k: NON_TRANSACTIONAL_KEYWORDS)
+                if (keyword.equals(k)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return first keyword of a SQL statement in upper case
+     * (after any whitespace & comments), or empty string
+     */
+    static String firstKeyword(String sql) {
+        final int len = sql.length();
+        int i = 0;
+
+        while (i < len) {
+            final char c = sql.charAt(i);
+            if (Character.isWhitespace(c) || c == ';') {
+                ++i;
+            } else if (sql.startsWith("--", i)) {
+                final int end = sql.indexOf('\n', i);
+                i = (end < 0) ? len : end + 1;
+            } else if (sql.startsWith("/*", i)) {
+                final int end = sql.indexOf("*/", i + 2);
+                i = (end < 0) ? len : end + 2;
+            } else {
+                break;
+            }
+        }
+
+        final int start = i;
+        while (i < len && Character.isLetter(sql.charAt(i))) ++i;
+        return sql.substring(start, i).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return flat JSON batch error result with the given message
+     */
+    static String batchErrorJSON(String message) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[\"batcherror\",");
+        appendQuoted(sb, message);
+        sb.append(']');
+        return sb.toString();
+    }
+
+    /**
+     * Get the rows of the first statement result with rows
+     * (row values in column order, JSON null as null).
+     */
+    static ArrayList<Object[]> firstResultRows(String flatResult) throws JSONException {
+        ArrayList<Object[]> rows = new ArrayList<Object[]>();
+        FlatResultScanner r = new FlatResultScanner(flatResult);
+
+        while (r.hasNext()) {
+            if (r.nextIs("ch2")) {
+                r.skip(3);
+            } else if (r.nextIs("okrows")) {
+                r.skip(1);
+                r.skipChangesAndInsertId();
+                while (r.hasNext() && !r.nextIs("endrows")) {
+                    Object[] row = new Object[r.nextInt()];
+                    for (int j = 0; j < row.length; ++j) {
+                        r.skip(1); // (skip column name)
+                        row[j] = r.nextValue();
+                    }
+                    rows.add(row);
+                }
+                return rows;
+            } else if (r.nextIs("error")) {
+                r.skip(4);
+            } else {
+                // "ok", "batcherror", or "extra"
+                r.skip(r.nextIs("batcherror") ? 2 : 1);
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Append a string value with JSON quoting, consistent with JSON.stringify().
+     */
+    static void appendQuoted(StringBuilder sb, String s) {
+        sb.append('"');
+        final int len = s.length();
+        for (int i = 0; i < len; ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    sb.append('\\').append(c);
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00");
+                        sb.append(HEX_DIGITS[(c >> 4) & 0xf]).append(HEX_DIGITS[c & 0xf]);
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+}
+
+/* vim: set expandtab : */
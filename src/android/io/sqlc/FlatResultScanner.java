@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import org.json.JSONException;
+
+/**
+ * Walks the values of a flat JSON batch result from the native library
+ * (a JSON array of strings, numbers, and null) in the result string itself,
+ * for the internal result checks of the DBRunner. Unlike a JSONArray, no
+ * objects are allocated for the values that are skipped (such as the rows
+ * of a large SELECT result), only for the values that are read.
+ *
+ * NOTE: Tags ("ok", "ch2", "okrows", "error", ...) are compared in place,
+ * which is fine since they never contain escaped characters.
+ */
+final class FlatResultScanner {
+    private final String s;
+
+    private final int len;
+
+    // start of the next value, or len at the end of the array:
+    private int pos;
+
+    FlatResultScanner(String flatResult) throws JSONException {
+        this.s = flatResult;
+        this.len = flatResult.length();
+
+        int i = skipWhitespace(0);
+        if (i >= len || s.charAt(i) != '[') throw new JSONException("flat JSON batch result expected");
+        i = skipWhitespace(i + 1);
+        this.pos = (i < len && s.charAt(i) == ']') ? len : i;
+    }
+
+    boolean hasNext() {
+        return pos < len;
+    }
+
+    /**
+     * @return true if the next value is the given tag (not consumed)
+     */
+    boolean nextIs(String tag) {
+        final int end = pos + 1 + tag.length();
+        return end < len && s.charAt(pos) == '"' && s.startsWith(tag, pos + 1) && s.charAt(end) == '"';
+    }
+
+    void skip(int count) throws JSONException {
+        for (int i = 0; i < count && pos < len; ++i) advance(valueEnd());
+    }
+
+    /**
+     * @return next value as a (non-negative) int, parsed in place
+     */
+    int nextInt() throws JSONException {
+        final int end = valueEnd();
+        int value = 0;
+        int i = pos;
+        while (i < end && Character.isDigit(s.charAt(i))) {
+            value = value * 10 + (s.charAt(i) - '0');
+            ++i;
+        }
+        if (i == pos || skipWhitespace(i) != end) throw new JSONException("integer expected at position " + pos);
+        advance(end);
+        return value;
+    }
+
+    /**
+     * @return next value as a string (same as JSONArray.optString(), "null" for null)
+     */
+    String nextString() throws JSONException {
+        final Object value = nextValue();
+        return String.valueOf(value);
+    }
+
+    /**
+     * @return next value: String, Long, Double, Boolean, or null
+     */
+    Object nextValue() throws JSONException {
+        if (pos >= len) throw new JSONException("end of flat JSON batch result");
+
+        final int end = valueEnd();
+        Object value;
+
+        if (s.charAt(pos) == '"') {
+            value = unquote(pos, end);
+        } else {
+            final String token = s.substring(pos, end).trim();
+            if (token.equals("null")) {
+                value = null;
+            } else if (token.equals("true") || token.equals("false")) {
+                value = Boolean.valueOf(token);
+            } else {
+                try {
+                    value = (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) ?
+                        (Object)Long.valueOf(token) : (Object)Double.valueOf(token);
+                } catch (NumberFormatException e) {
+                    throw new JSONException("unexpected value at position " + pos + ": " + token);
+                }
+            }
+        }
+
+        advance(end);
+        return value;
+    }
+
+    /**
+     * Skip the rows of an "okrows" result, after the "okrows" tag,
+     * up to and including the "endrows" tag.
+     *
+     * @return number of rows
+     */
+    long skipRows() throws JSONException {
+        skipChangesAndInsertId();
+
+        long rows = 0;
+        while (pos < len && !nextIs("endrows")) {
+            skip(2 * nextInt());
+            ++rows;
+        }
+        skip(1);
+        return rows;
+    }
+
+    /**
+     * Skip the optional "changes" & "insert_id" values of an "okrows" result,
+     * after the "okrows" tag.
+     *
+     * @return changes, or 0 if not present
+     */
+    long skipChangesAndInsertId() throws JSONException {
+        long changes = 0;
+        if (nextIs("changes")) {
+            skip(1);
+            final Object value = nextValue();
+            if (value instanceof Number) changes = ((Number)value).longValue();
+        }
+        if (nextIs("insert_id")) skip(2);
+        return changes;
+    }
+
+    /**
+     * @return end of the value at pos (exclusive)
+     */
+    private int valueEnd() throws JSONException {
+        int i = pos;
+
+        if (s.charAt(i) == '"') {
+            for (++i; i < len; ++i) {
+                final char c = s.charAt(i);
+                if (c == '\\') {
+                    ++i;
+                } else if (c == '"') {
+                    return i + 1;
+                }
+            }
+            throw new JSONException("unterminated string at position " + pos);
+        }
+
+        while (i < len) {
+            final char c = s.charAt(i);
+            if (c == ',' || c == ']') break;
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * Move to the start of the next value (or the end) after the value ending at end.
+     */
+    private void advance(int end) throws JSONException {
+        int i = skipWhitespace(end);
+        if (i >= len) throw new JSONException("unterminated flat JSON batch result");
+
+        if (s.charAt(i) == ']') {
+            pos = len;
+        } else if (s.charAt(i) == ',') {
+            pos = skipWhitespace(i + 1);
+        } else {
+            throw new JSONException("unexpected character at position " + i);
+        }
+    }
+
+    private int skipWhitespace(int i) {
+        while (i < len && Character.isWhitespace(s.charAt(i))) ++i;
+        return i;
+    }
+
+    /**
+     * @return decoded value of the quoted string from start to end (exclusive)
+     */
+    private String unquote(int start, int end) throws JSONException {
+        final int first = s.indexOf('\\', start + 1);
+        if (first < 0 || first >= end - 1) return s.substring(start + 1, end - 1);
+
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start + 1; i < end - 1; ++i) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+
+            c = s.charAt(++i);
+            switch (c) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 >= end) throw new JSONException("invalid escape at position " + i);
+                    try {
+                        sb.append((char)Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        throw new JSONException("invalid escape at position " + i);
+                    }
+                    i += 4;
+                    break;
+                default:
+                    // '"', '\\', '/'
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
+
+/* vim: set expandtab : */
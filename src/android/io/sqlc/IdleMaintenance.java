@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+
+/**
+ * Deferrable database maintenance that the DBRunner runs while its queue
+ * is idle (idleMaintenance open option), one short step at a time so that
+ * the next request is not delayed by more than a single step:
+ *
+ * 1. PRAGMA optimize (ANALYZE of the tables that may benefit)
+ * 2. PRAGMA incremental_vacuum in small chunks (with auto_vacuum=INCREMENTAL only)
+ * 3. PRAGMA wal_checkpoint(PASSIVE) (in WAL mode only)
+ *
+ * A maintenance cycle starts only if the database was changed since the
+ * last cycle, and a step is postponed while a transaction is in progress.
+ *
+ * NOTE: Methods must be called from the DBRunner thread.
+ */
+final class IdleMaintenance {
+    private static final int INCREMENTAL_VACUUM_PAGES = 64;
+
+    private static final int STEP_NONE = 0;
+    private static final int STEP_OPTIMIZE = 1;
+    private static final int STEP_INCREMENTAL_VACUUM = 2;
+    private static final int STEP_CHECKPOINT = 3;
+
+    private final int dbid;
+
+    private int step = STEP_NONE;
+
+    // total changes when the last maintenance cycle was finished:
+    private int doneChanges = 0;
+
+    IdleMaintenance(int dbid) {
+        this.dbid = dbid;
+    }
+
+    /**
+     * @return true if a maintenance cycle is in progress, or the database
+     * was changed since the last cycle
+     */
+    boolean isPending(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        return step != STEP_NONE || mydb.totalChanges() != doneChanges;
+    }
+
+    /**
+     * Run the next maintenance step.
+     *
+     * @return false if the step was postponed since a transaction is in progress
+     */
+    boolean runStep(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        try {
+            if (mydb.inTransaction()) return false;
+
+            if (step == STEP_NONE) step = STEP_OPTIMIZE;
+
+            switch (step) {
+                case STEP_OPTIMIZE:
+                    mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("PRAGMA optimize"));
+                    step = STEP_INCREMENTAL_VACUUM;
+                    break;
+
+                case STEP_INCREMENTAL_VACUUM:
+                    // auto_vacuum: 2 = INCREMENTAL
+                    if (mydb.queryLong("PRAGMA auto_vacuum") == 2 && mydb.queryLong("PRAGMA freelist_count") > 0) {
+                        mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("PRAGMA incremental_vacuum(" + INCREMENTAL_VACUUM_PAGES + ")"));
+                        // continue with the next chunk (if needed) in the next step
+                        if (mydb.queryLong("PRAGMA freelist_count") > 0) break;
+                    }
+                    step = STEP_CHECKPOINT;
+                    break;
+
+                case STEP_CHECKPOINT:
+                    if (isWalMode(mydb))
+                        mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("PRAGMA wal_checkpoint(PASSIVE)"));
+                    finish(mydb);
+                    break;
+            }
+        } catch (Exception e) {
+            Log.e(IdleMaintenance.class.getSimpleName(), "idle maintenance failed, skipping this cycle", e);
+            finish(mydb);
+        }
+
+        return true;
+    }
+
+    private void finish(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        step = STEP_NONE;
+        doneChanges = mydb.totalChanges();
+    }
+
+    private boolean isWalMode(SQLitePlugin.SQLiteNativeDatabase mydb) throws Exception {
+        ArrayList<Object[]> rows =
+            FlatBatch.firstResultRows(mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("PRAGMA journal_mode")));
+        return rows.size() == 1 && "wal".equals(rows.get(0)[0]);
+    }
+}
+
+/* vim: set expandtab : */
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads records from a local CSV or JSON lines file, for use by the
+ * DBRunner importFile action.
+ *
+ * CSV: RFC 4180 style, with quoted fields that may contain commas, doubled
+ * quotes, and line breaks. An empty unquoted field is read as NULL.
+ *
+ * NOTE: Since the file is read one line at a time (BufferedReader.readLine),
+ * each line break in a quoted field (LF, CRLF, or a bare CR) is read as LF.
+ *
+ * JSON lines: one JSON object (values by column name) or JSON array
+ * (values by position) per line, blank lines ignored.
+ *
+ * A UTF-8 byte order mark at the start of the file (as written by some
+ * spreadsheet programs) is skipped.
+ */
+final class ImportRecordReader {
+    private final BufferedReader reader;
+
+    private final boolean jsonLines;
+
+    private String[] columns;
+
+    // first JSON object, kept in case it was read to determine the columns:
+    private JSONObject firstObject = null;
+
+    private final StringBuilder field = new StringBuilder();
+
+    private final ArrayList<Object> values = new ArrayList<Object>();
+
+    private long lineNumber = 0;
+
+    /**
+     * CSV syntax error, or a record with a wrong number of values.
+     */
+    static final class ParseException extends IOException {
+        ParseException(String message, long lineNumber) {
+            super(message + " at line " + lineNumber);
+        }
+    }
+
+    ImportRecordReader(BufferedReader reader, boolean jsonLines, String[] columns, boolean header)
+            throws IOException, JSONException {
+        this.reader = reader;
+        this.jsonLines = jsonLines;
+        this.columns = columns;
+
+        if (columns == null) {
+            if (jsonLines) {
+                String line = nextLine();
+                if (line != null) {
+                    if (!line.startsWith("{"))
+                        throw new JSONException("columns option is needed for JSON array records");
+                    firstObject = new JSONObject(line);
+                    ArrayList<String> keys = new ArrayList<String>();
+                    Iterator<String> ki = firstObject.keys();
+                    while (ki.hasNext()) keys.add(ki.next());
+                    this.columns = keys.toArray(new String[keys.size()]);
+                }
+            } else if (header) {
+                Object[] names = nextCSVRecord();
+                if (names != null) {
+                    this.columns = new String[names.length];
+                    for (int i = 0; i < names.length; ++i)
+                        this.columns[i] = (names[i] == null) ? "" : names[i].toString();
+                }
+            }
+        } else if (header && !jsonLines) {
+            // skip the header line:
+            nextCSVRecord();
+        }
+    }
+
+    String[] getColumns() {
+        return columns;
+    }
+
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return record values (one per column), or null at the end of the file
+     */
+    Object[] next() throws IOException, JSONException {
+        Object[] record = jsonLines ? nextJSONRecord() : nextCSVRecord();
+
+        if (record != null && record.length != columns.length)
+            throw new ParseException("record has " + record.length + " values, expected " +
+                columns.length, lineNumber);
+
+        return record;
+    }
+
+    void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // IGNORED
+        }
+    }
+
+    private String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line == null) return null;
+        // skip the byte order mark (if any):
+        if (lineNumber == 0 && line.length() > 0 && line.charAt(0) == '\uFEFF') line = line.substring(1);
+        ++lineNumber;
+        return line;
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) return null;
+        } while (line.trim().length() == 0);
+        return line.trim();
+    }
+
+    private Object[] nextJSONRecord() throws IOException, JSONException {
+        if (firstObject != null) {
+            Object[] record = valuesFromObject(firstObject);
+            firstObject = null;
+            return record;
+        }
+
+        String line = nextLine();
+        if (line == null) return null;
+
+        if (line.startsWith("[")) {
+            JSONArray a = new JSONArray(line);
+            Object[] record = new Object[a.length()];
+            for (int i = 0; i < record.length; ++i)
+                record[i] = jsonValue(a.get(i));
+            return record;
+        }
+
+        return valuesFromObject(new JSONObject(line));
+    }
+
+    private Object[] valuesFromObject(JSONObject o) throws JSONException {
+        Object[] record = new Object[columns.length];
+        for (int i = 0; i < columns.length; ++i)
+            record[i] = o.has(columns[i]) ? jsonValue(o.get(columns[i])) : null;
+        return record;
+    }
+
+    private static Object jsonValue(Object v) {
+        if (v == JSONObject.NULL) return null;
+        if (v instanceof JSONObject || v instanceof JSONArray) return v.toString();
+        return v;
+    }
+
+    private Object[] nextCSVRecord() throws IOException {
+        String line = readLine();
+        if (line == null) return null;
+
+        // skip blank line(s):
+        while (line.length() == 0) {
+            line = readLine();
+            if (line == null) return null;
+        }
+
+        values.clear();
+
+        int pos = 0;
+        for (;;) {
+            field.setLength(0);
+
+            if (pos < line.length() && line.charAt(pos) == '"') {
+                // quoted field, may continue on the following line(s):
+                ++pos;
+                for (;;) {
+                    int q = line.indexOf('"', pos);
+                    if (q == -1) {
+                        field.append(line, pos, line.length()).append('\n');
+                        line = readLine();
+                        if (line == null)
+                            throw new ParseException("unterminated quoted CSV field", lineNumber);
+                        pos = 0;
+                    } else if (q + 1 < line.length() && line.charAt(q + 1) == '"') {
+                        field.append(line, pos, q + 1);
+                        pos = q + 2;
+                    } else {
+                        field.append(line, pos, q);
+                        pos = q + 1;
+                        break;
+                    }
+                }
+                values.add(field.toString());
+
+                if (pos < line.length() && line.charAt(pos) != ',')
+                    throw new ParseException("unexpected character after quoted CSV field", lineNumber);
+
+            } else {
+                int c = line.indexOf(',', pos);
+                int end = (c == -1) ? line.length() : c;
+                values.add((end == pos) ? null : line.substring(pos, end));
+                pos = end;
+            }
+
+            if (pos >= line.length()) break;
+
+            // skip comma separator:
+            ++pos;
+            if (pos == line.length()) {
+                // trailing empty field:
+                values.add(null);
+                break;
+            }
+        }
+
+        return values.toArray();
+    }
+}
+
+/* vim: set expandtab : */
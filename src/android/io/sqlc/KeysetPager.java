@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.sql.SQLException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Keyset pagination for the queryPage action: each page continues after
+ * the last key value of the previous page (WHERE key > ? ORDER BY key LIMIT n)
+ * instead of OFFSET, so that a page deep into a large table costs the same
+ * as the first page (with an index on the key column).
+ *
+ * The continuation token is an opaque string with the last key value.
+ *
+ * NOTE: Must be called from the DBRunner thread.
+ */
+final class KeysetPager {
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    private KeysetPager() {
+    }
+
+    /**
+     * Get a page of rows.
+     *
+     * @param options  {table or query, params (with query), key, desc, pageSize, token}
+     *
+     * @return {"rows":[...],"token":"..."} (token null after the last page)
+     */
+    static JSONObject page(SQLitePlugin.SQLiteNativeDatabase mydb, int dbid, JSONObject options) throws Exception {
+        final String table = options.has("table") ? options.getString("table") : null;
+        final String query = options.has("query") ? options.getString("query") : null;
+        if ((table == null) == (query == null))
+            throw new SQLException("queryPage expects either a table or a query option");
+
+        final String key = options.getString("key");
+        final boolean desc = options.optBoolean("desc", false);
+        final int pageSize = options.optInt("pageSize", DEFAULT_PAGE_SIZE);
+        if (pageSize < 1) throw new SQLException("invalid pageSize: " + pageSize);
+
+        final String token = options.has("token") && !options.isNull("token") ? options.getString("token") : null;
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM ");
+        if (table != null) {
+            SQLitePlugin.appendQuotedIdentifier(sql, table);
+        } else {
+            sql.append('(').append(query).append(')');
+        }
+
+        StringBuilder keyColumn = new StringBuilder();
+        SQLitePlugin.appendQuotedIdentifier(keyColumn, key);
+
+        if (token != null) sql.append(" WHERE ").append(keyColumn).append(desc ? " < ?" : " > ?");
+
+        // one more row than the page size to find out if there is a next page:
+        sql.append(" ORDER BY ").append(keyColumn).append(desc ? " DESC" : "").append(" LIMIT ").append(pageSize + 1);
+
+        JSONArray params = (query != null) ? options.optJSONArray("params") : null;
+        final int paramCount = (params != null) ? params.length() : 0;
+
+        FlatBatch b = new FlatBatch(dbid);
+        b.sql(sql.toString(), (token != null) ? paramCount + 1 : paramCount);
+        for (int i = 0; i < paramCount; ++i) b.param(params.get(i));
+        if (token != null) b.param(lastKey(token));
+
+        return pageResult(mydb.executeBatchOrThrow(b), key, pageSize);
+    }
+
+    private static Object lastKey(String token) throws SQLException {
+        try {
+            JSONArray a = new JSONArray(token);
+            if (a.length() != 1) throw new JSONException("unexpected token length");
+            return a.get(0);
+        } catch (JSONException e) {
+            throw new SQLException("invalid page token");
+        }
+    }
+
+    /**
+     * Build the page result from the flat JSON batch result (rows of the first statement).
+     */
+    private static JSONObject pageResult(String flatResult, String key, int pageSize) throws Exception {
+        JSONArray a = new JSONArray(flatResult);
+        JSONArray rows = new JSONArray();
+        Object lastKey = null;
+        boolean more = false;
+
+        int i = 0;
+        if ("okrows".equals(a.opt(i++))) {
+            if ("changes".equals(a.opt(i))) i += 2;
+            if ("insert_id".equals(a.opt(i))) i += 2;
+            final int len = a.length();
+            while (i < len && !"endrows".equals(a.opt(i))) {
+                final int columns = a.getInt(i++);
+                if (rows.length() == pageSize) {
+                    // (extra row) there is a next page
+                    more = true;
+                    break;
+                }
+
+                JSONObject row = new JSONObject();
+                for (int c = 0; c < columns; ++c) {
+                    row.put(a.getString(i), a.get(i + 1));
+                    i += 2;
+                }
+                rows.put(row);
+
+                if (!row.has(key)) throw new SQLException("key column not in result: " + key);
+                lastKey = row.get(key);
+            }
+        }
+
+        JSONObject r = new JSONObject();
+        r.put("rows", rows);
+        if (more && lastKey != null && lastKey != JSONObject.NULL) {
+            r.put("token", new JSONArray().put(lastKey).toString());
+        } else {
+            r.put("token", JSONObject.NULL);
+        }
+        return r;
+    }
+}
+
+/* vim: set expandtab : */
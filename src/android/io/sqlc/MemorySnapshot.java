@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import android.util.Log;
+
+import java.io.File;
+
+import java.sql.SQLException;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Loads an in-memory database from a snapshot database file, and saves it
+ * back to the snapshot file, for the DBRunner inMemory open options.
+ *
+ * The schema and data are copied through an attached database since the
+ * SQLite backup API (and VACUUM INTO) is not available in the native
+ * driver library. A snapshot is saved into a temporary file which then
+ * replaces the snapshot file, so that the snapshot file is never left
+ * partially written.
+ *
+ * NOTE: Methods must be called from the DBRunner thread, with no
+ * transaction in progress on the in-memory database.
+ */
+final class MemorySnapshot {
+    private static final String SNAPSHOT_SCHEMA = "snapshot";
+
+    private static final Pattern WITHOUT_ROWID =
+        Pattern.compile("\\)\\s*WITHOUT\\s+ROWID\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private final File file;
+
+    private final int dbid;
+
+    // total changes on the in-memory database when last loaded or saved:
+    private int savedChanges = 0;
+
+    MemorySnapshot(File file, int dbid) {
+        this.file = file;
+        this.dbid = dbid;
+    }
+
+    /**
+     * Load the snapshot file into the (empty) in-memory database,
+     * if the snapshot file exists.
+     */
+    void load(SQLitePlugin.SQLiteNativeDatabase mydb) throws Exception {
+        if (file.exists()) {
+            attach(mydb, file);
+
+            try {
+                ArrayList<String[]> schema = readSchema(mydb, SNAPSHOT_SCHEMA);
+                int userVersion = readUserVersion(mydb, SNAPSHOT_SCHEMA);
+
+                FlatBatch b = new FlatBatch(dbid);
+                b.sql("BEGIN");
+                addCreateTables(b, schema);
+                addCopyData(mydb, b, schema, SNAPSHOT_SCHEMA, "main");
+                addCreateOther(b, schema);
+                b.sql("PRAGMA user_version=" + userVersion);
+                mydb.commitBatchOrThrow(b);
+            } finally {
+                detach(mydb);
+            }
+        }
+
+        savedChanges = mydb.totalChanges();
+    }
+
+    /**
+     * @return true if the in-memory database was changed since it was last loaded or saved
+     */
+    boolean hasChanges(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        return mydb.totalChanges() != savedChanges;
+    }
+
+    /**
+     * Save the in-memory database to the snapshot file.
+     */
+    void save(SQLitePlugin.SQLiteNativeDatabase mydb) throws Exception {
+        File tmpFile = new File(file.getPath() + "-snapshot");
+        deleteWithJournal(tmpFile);
+
+        ArrayList<String[]> schema = readSchema(mydb, "main");
+        int userVersion = readUserVersion(mydb, "main");
+
+        try {
+            // tables in the new database file, with its own db handle:
+            FlatBatch b = new FlatBatch(0);
+            b.sql("PRAGMA journal_mode=OFF");
+            b.sql("BEGIN");
+            addCreateTables(b, schema);
+            executeOnFile(tmpFile, b);
+
+            // data copied from the in-memory database:
+            attach(mydb, tmpFile);
+            try {
+                b = new FlatBatch(dbid);
+                b.sql("PRAGMA " + SNAPSHOT_SCHEMA + ".journal_mode=OFF");
+                mydb.executeBatchOrThrow(b);
+
+                b.reset();
+                b.sql("BEGIN");
+                addCopyData(mydb, b, schema, "main", SNAPSHOT_SCHEMA);
+                mydb.commitBatchOrThrow(b);
+            } finally {
+                detach(mydb);
+            }
+
+            // indices, triggers & views after the data is copied:
+            b = new FlatBatch(0);
+            b.sql("PRAGMA journal_mode=OFF");
+            b.sql("BEGIN");
+            addCreateOther(b, schema);
+            b.sql("PRAGMA user_version=" + userVersion);
+            executeOnFile(tmpFile, b);
+
+            // remove any stale journal files that do not belong to the new file,
+            // then replace the snapshot file (atomic rename):
+            deleteJournalFiles(file);
+            if (!tmpFile.renameTo(file))
+                throw new SQLException("could not rename snapshot file: " + tmpFile.getPath());
+        } catch (Exception e) {
+            deleteWithJournal(tmpFile);
+            throw e;
+        }
+
+        savedChanges = mydb.totalChanges();
+    }
+
+    /**
+     * Execute a batch that starts with PRAGMA journal_mode & BEGIN
+     * on a new db handle to the given file.
+     */
+    private void executeOnFile(File f, FlatBatch b) throws Exception {
+        SQLitePlugin.SQLiteNativeDatabase filedb = new SQLitePlugin.SQLiteNativeDatabase();
+        filedb.open(f);
+        try {
+            filedb.commitBatchOrThrow(b);
+        } finally {
+            filedb.closeDatabaseNow();
+        }
+    }
+
+    private void attach(SQLitePlugin.SQLiteNativeDatabase mydb, File f) throws Exception {
+        FlatBatch b = new FlatBatch(dbid);
+        b.sql("ATTACH ? AS " + SNAPSHOT_SCHEMA, 1).param(f.getAbsolutePath());
+        mydb.executeBatchOrThrow(b);
+    }
+
+    private void detach(SQLitePlugin.SQLiteNativeDatabase mydb) {
+        try {
+            mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("DETACH " + SNAPSHOT_SCHEMA));
+        } catch (Exception e) {
+            Log.e(MemorySnapshot.class.getSimpleName(), "couldn't detach snapshot database, ignoring", e);
+        }
+    }
+
+    /**
+     * Read the schema entries (type, name, sql) in order of creation.
+     */
+    private ArrayList<String[]> readSchema(SQLitePlugin.SQLiteNativeDatabase mydb, String schemaName)
+            throws Exception {
+        FlatBatch b = new FlatBatch(dbid);
+        b.sql("SELECT type, name, sql FROM " + schemaName + ".sqlite_master" +
+            " WHERE sql IS NOT NULL AND name NOT LIKE 'sqlite_stat%' ORDER BY rowid");
+
+        ArrayList<String[]> schema = new ArrayList<String[]>();
+        for (Object[] row: FlatBatch.firstResultRows(mydb.executeBatchOrThrow(b))) {
+            schema.add(new String[]{ row[0].toString(), row[1].toString(), row[2].toString() });
+        }
+        return schema;
+    }
+
+    private int readUserVersion(SQLitePlugin.SQLiteNativeDatabase mydb, String schemaName) throws Exception {
+        FlatBatch b = new FlatBatch(dbid);
+        b.sql("PRAGMA " + schemaName + ".user_version");
+
+        ArrayList<Object[]> rows = FlatBatch.firstResultRows(mydb.executeBatchOrThrow(b));
+        return (rows.size() == 1) ? ((Number)rows.get(0)[0]).intValue() : 0;
+    }
+
+    private static boolean isVirtualTable(String[] entry) {
+        return entry[2].startsWith("CREATE VIRTUAL TABLE");
+    }
+
+    private static boolean isWithoutRowidTable(String[] entry) {
+        return WITHOUT_ROWID.matcher(entry[2]).find();
+    }
+
+    private static boolean isSequenceTable(String[] entry) {
+        return entry[1].equals("sqlite_sequence");
+    }
+
+    /**
+     * Add statements to create the tables: virtual tables first, since they
+     * create their own shadow tables, then the other tables if not existing.
+     */
+    private static void addCreateTables(FlatBatch b, ArrayList<String[]> schema) {
+        for (String[] entry: schema)
+            if (entry[0].equals("table") && isVirtualTable(entry)) b.sql(entry[2]);
+
+        final String createTable = "CREATE TABLE ";
+        for (String[] entry: schema) {
+            if (entry[0].equals("table") && !isVirtualTable(entry) && !isSequenceTable(entry) &&
+                    entry[2].startsWith(createTable))
+                b.sql(createTable + "IF NOT EXISTS " + entry[2].substring(createTable.length()));
+        }
+    }
+
+    /**
+     * Add statements to copy the data of all tables, including the shadow
+     * tables of virtual tables (instead of the virtual tables themselves).
+     *
+     * NOTE: Each target table is cleared first since some virtual tables
+     * (such as FTS5 and R*Tree) write initial records into their shadow tables.
+     *
+     * The rowid is copied explicitly (with the column names) so that the
+     * rowid values of a table with no INTEGER PRIMARY KEY are kept, as needed
+     * by an application that stores rowid values, and for FTS external content
+     * tables (with the same rowid values in the shadow tables).
+     */
+    private void addCopyData(SQLitePlugin.SQLiteNativeDatabase mydb, FlatBatch b, ArrayList<String[]> schema,
+            String from, String to) throws Exception {
+        boolean hasSequenceTable = false;
+        boolean hasAutoincrement = false;
+
+        for (String[] entry: schema) {
+            if (!entry[0].equals("table") || isVirtualTable(entry)) continue;
+
+            if (isSequenceTable(entry)) {
+                hasSequenceTable = true;
+                continue;
+            }
+
+            if (entry[2].toUpperCase(Locale.ENGLISH).contains("AUTOINCREMENT")) hasAutoincrement = true;
+
+            StringBuilder sb = new StringBuilder("DELETE FROM ");
+            sb.append(to).append('.');
+            SQLitePlugin.appendQuotedIdentifier(sb, entry[1]);
+            b.sql(sb.toString());
+
+            sb.setLength(0);
+            sb.append("INSERT INTO ").append(to).append('.');
+            SQLitePlugin.appendQuotedIdentifier(sb, entry[1]);
+            if (isWithoutRowidTable(entry)) {
+                sb.append(" SELECT * FROM ");
+            } else {
+                final String columns = columnList(mydb, from, entry[1]);
+                sb.append("(rowid, ").append(columns).append(") SELECT rowid, ").append(columns).append(" FROM ");
+            }
+            sb.append(from).append('.');
+            SQLitePlugin.appendQuotedIdentifier(sb, entry[1]);
+            b.sql(sb.toString());
+        }
+
+        // sqlite_sequence is created together with the first AUTOINCREMENT table:
+        if (hasSequenceTable && hasAutoincrement) {
+            b.sql("DELETE FROM " + to + ".sqlite_sequence");
+            b.sql("INSERT INTO " + to + ".sqlite_sequence SELECT * FROM " + from + ".sqlite_sequence");
+        }
+    }
+
+    /**
+     * @return quoted column names of a table, separated by commas
+     */
+    private String columnList(SQLitePlugin.SQLiteNativeDatabase mydb, String schemaName, String table)
+            throws Exception {
+        StringBuilder sb = new StringBuilder("PRAGMA ");
+        sb.append(schemaName).append(".table_info(");
+        SQLitePlugin.appendQuotedIdentifier(sb, table);
+        sb.append(')');
+
+        StringBuilder columns = new StringBuilder();
+        for (Object[] row: FlatBatch.firstResultRows(mydb.executeBatchOrThrow(new FlatBatch(dbid).sql(sb.toString())))) {
+            if (columns.length() > 0) columns.append(", ");
+            SQLitePlugin.appendQuotedIdentifier(columns, row[1].toString());
+        }
+        return columns.toString();
+    }
+
+    /**
+     * Add statements to create the indices, triggers, and views.
+     */
+    private static void addCreateOther(FlatBatch b, ArrayList<String[]> schema) {
+        for (String[] entry: schema)
+            if (!entry[0].equals("table")) b.sql(entry[2]);
+    }
+
+    private static void deleteWithJournal(File f) {
+        f.delete();
+        deleteJournalFiles(f);
+    }
+
+    static void deleteJournalFiles(File f) {
+        new File(f.getPath() + "-journal").delete();
+        new File(f.getPath() + "-wal").delete();
+        new File(f.getPath() + "-shm").delete();
+    }
+}
+
+/* vim: set expandtab : */
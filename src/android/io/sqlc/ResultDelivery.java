@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import android.util.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+
+/**
+ * Delivers plugin results to the Cordova bridge in a separate thread,
+ * so that a DBRunner thread can start with its next request while the
+ * result of the previous request is delivered.
+ *
+ * Results are delivered by a single thread in the order that they are
+ * handed off, which keeps the callback order of each database.
+ *
+ * NOTE: The ordering is global, for all databases of the plugin, with a
+ * single bounded handoff queue: a DBRunner thread waits in case the
+ * delivery is too far behind, so that a slow delivery (such as a large
+ * result) holds back the results of all databases.
+ */
+final class ResultDelivery {
+    static final int DEFAULT_QUEUE_SIZE = 64;
+
+    private static final class Delivery {
+        final CallbackContext target;
+        final PluginResult result;
+        final TraceRingBuffer trace;
+        final int traceId;
+
+        Delivery(CallbackContext target, PluginResult result, TraceRingBuffer trace, int traceId) {
+            this.target = target;
+            this.result = result;
+            this.trace = trace;
+            this.traceId = traceId;
+        }
+    }
+
+    /**
+     * Callback context that hands off its results to the delivery thread.
+     *
+     * NOTE: success() & error() send their results by sendPluginResult().
+     */
+    private final class DeferredCallbackContext extends CallbackContext {
+        final CallbackContext target;
+
+        DeferredCallbackContext(CallbackContext target) {
+            super(target.getCallbackId(), null);
+            this.target = target;
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult result) {
+            handOff(new Delivery(target, result, null, 0));
+        }
+    }
+
+    private final BlockingQueue<Delivery> q;
+
+    private Thread thread = null;
+
+    private volatile boolean stopped = false;
+
+    ResultDelivery(int queueSize) {
+        this.q = new ArrayBlockingQueue<Delivery>(queueSize);
+    }
+
+    /**
+     * @return callback context with results delivered by the delivery thread
+     * (null if cbc is null)
+     */
+    CallbackContext callbackContext(CallbackContext cbc) {
+        if (cbc == null || cbc instanceof DeferredCallbackContext) return cbc;
+        start();
+        return new DeferredCallbackContext(cbc);
+    }
+
+    /**
+     * Send a batch result, with the deliver trace events (if enabled)
+     * recorded when the result is actually delivered.
+     */
+    void sendPluginResult(CallbackContext cbc, PluginResult result, TraceRingBuffer trace, int traceId) {
+        if (cbc instanceof DeferredCallbackContext) {
+            handOff(new Delivery(((DeferredCallbackContext)cbc).target, result, trace, traceId));
+        } else {
+            deliver(new Delivery(cbc, result, trace, traceId));
+        }
+    }
+
+    /**
+     * Stop the delivery thread (plugin destroyed), with the results that
+     * are not yet delivered dropped. Results handed off after this are
+     * dropped as well.
+     */
+    synchronized void stop() {
+        stopped = true;
+        if (thread != null) thread.interrupt();
+        thread = null;
+        q.clear();
+    }
+
+    private synchronized void start() {
+        if (thread != null || stopped) return;
+
+        thread = new Thread(new Runnable() {
+            public void run() {
+                for (;;) {
+                    try {
+                        deliver(q.take());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "SQLitePlugin-delivery");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void handOff(Delivery d) {
+        if (stopped) return;
+
+        try {
+            q.put(d);
+        } catch (InterruptedException e) {
+            // (not expected) deliver in this thread:
+            Log.e(ResultDelivery.class.getSimpleName(), "interrupted while handing off result", e);
+            Thread.currentThread().interrupt();
+            deliver(d);
+        }
+    }
+
+    private static void deliver(Delivery d) {
+        if (d.trace != null) d.trace.record(TraceRingBuffer.DELIVER_BEGIN, d.traceId);
+        try {
+            d.target.sendPluginResult(d.result);
+        } catch (Exception e) {
+            Log.e(ResultDelivery.class.getSimpleName(), "couldn't deliver result", e);
+        }
+        if (d.trace != null) d.trace.record(TraceRingBuffer.DELIVER_END, d.traceId);
+    }
+}
+
+/* vim: set expandtab : */
@@ -11,9 +11,19 @@ package io.sqlc;
 
 import android.annotation.SuppressLint;
 
+import android.content.ComponentCallbacks2;
+
+import android.content.res.Configuration;
+
+import android.os.SystemClock;
+
 import android.util.Log;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 
 import java.lang.IllegalArgumentException;
 //import java.lang.Number;
@@ -23,10 +33,14 @@ import java.net.URISyntaxException;
 
 import java.util.concurrent.ConcurrentHashMap;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.cordova.CallbackContext;
 import org.apache.cordova.CordovaPlugin;
@@ -62,27 +76,65 @@ public class SQLitePlugin extends CordovaPlugin {
 
     static int lastdbid = 0;
 
+    private static final int BRIDGE_BENCHMARK_MAX_SIZE = 16*1024*1024;
+
+    /**
+     * Delivers the results from the DBRunner threads (in a separate thread)
+     * so that a database thread can start with its next request.
+     * Stopped by onDestroy().
+     */
+    private final ResultDelivery resultDelivery = new ResultDelivery(ResultDelivery.DEFAULT_QUEUE_SIZE);
+
+    /**
+     * Close the databases that are kept alive after close (keepAlive option)
+     * when the system asks to trim memory.
+     */
+    private final ComponentCallbacks2 trimMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) closeKeptAliveDatabases();
+        }
+
+        @Override
+        public void onLowMemory() {
+            closeKeptAliveDatabases();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
     /**
      * NOTE: Using default constructor, no explicit constructor.
      */
 
+    @Override
+    protected void pluginInitialize() {
+        cordova.getActivity().getApplicationContext().registerComponentCallbacks(trimMemoryCallbacks);
+    }
+
     @Override
     public boolean execute(String actionAsString, String argsAsString, CallbackContext cbc) {
         if (actionAsString.startsWith("fj")) {
-            int sep1pos = actionAsString.indexOf(':');
-            int sep2pos = actionAsString.indexOf(';');
-
-            int ll = Integer.parseInt(actionAsString.substring(sep1pos+1, sep2pos));
+            // parse ll & dbid in place (no substring or other allocation):
+            int ll = parseDigits(actionAsString, actionAsString.indexOf(':') + 1, ';');
             ll += 10; // plus overhead with extra space extra space
 
-            int s1pos = argsAsString.indexOf('[');
-            int s2pos = argsAsString.indexOf(',');
-            int dbid = Integer.parseInt(argsAsString.substring(s1pos+1, s2pos));
+            int dbid = parseDigits(argsAsString, argsAsString.indexOf('[') + 1, ',');
 
             // put db query in the queue to be executed in the db thread:
             DBQuery q = new DBQuery(argsAsString, ll, cbc);
+            // flags after ';' (atomic and/or timing, or extra):
+            final int flags = actionAsString.indexOf(';') + 1;
+            q.atomic = actionAsString.startsWith("atomic", flags);
+            q.timing = actionAsString.indexOf("timing", flags) >= 0;
             DBRunner r = dbrmap2.get(dbid);
             if (r != null) {
+                if (r.trace != null) {
+                    q.traceId = r.trace.nextId();
+                    r.trace.record(TraceRingBuffer.ENQUEUE, q.traceId);
+                }
                 try {
                     r.q.put(q);
                 } catch(Exception e) {
@@ -104,6 +156,28 @@ public class SQLitePlugin extends CordovaPlugin {
         }
     }
 
+    /**
+     * Parse a non-negative decimal integer value that ends with the given separator.
+     *
+     * @throws NumberFormatException if the value is missing, not terminated, or too large
+     */
+    static int parseDigits(String s, int start, char separator) {
+        final int len = s.length();
+        int value = 0;
+        int i = start;
+
+        while (i < len) {
+            char c = s.charAt(i);
+            if (c == separator && i > start) return value;
+            if (c < '0' || c > '9' || value > (Integer.MAX_VALUE - 9) / 10)
+                throw new NumberFormatException("invalid number at position " + i);
+            value = value * 10 + (c - '0');
+            ++i;
+        }
+
+        throw new NumberFormatException("separator '" + separator + "' not found");
+    }
+
     /**
      * Executes the request and returns PluginResult.
      *
@@ -149,6 +223,15 @@ public class SQLitePlugin extends CordovaPlugin {
                 cbc.success(echo_value);
                 break;
 
+            case bridgeBenchmark:
+                bridgeBenchmark(args.getJSONObject(0), cbc);
+                break;
+
+            case getDataVersion:
+                // answered in this thread (not queued)
+                getDataVersion(args.getJSONObject(0).getJSONObject("dbargs").getString("dbname"), cbc);
+                break;
+
             case open:
                 o = args.getJSONObject(0);
                 dbname = o.getString("name");
@@ -244,16 +327,46 @@ public class SQLitePlugin extends CordovaPlugin {
                 }
                 // */
                 break;
+
+            case importFile:
+            case saveSnapshot:
+            case getDatabaseStats:
+            case exportTrace:
+            case getStatementProfile:
+            case subscribeChanges:
+            case unsubscribeChanges:
+            case queryPage:
+            case executeScript:
+                enqueueDBQuery(action, args.getJSONObject(0), cbc);
+                break;
         }
 
         return status;
     }
 
+    /**
+     * Save the snapshot of each in-memory database with the inMemorySave option.
+     */
+    @Override
+    public void onPause(boolean multitasking) {
+        for (DBRunner r: dbrmap.values()) {
+            if (r.inMemorySave) {
+                try {
+                    r.q.put(new DBQuery(Action.saveSnapshot, null, null));
+                } catch(Exception e) {
+                    Log.e(SQLitePlugin.class.getSimpleName(), "couldn't add to queue", e);
+                }
+            }
+        }
+    }
+
     /**
      * Clean up and close all open databases.
      */
     @Override
     public void onDestroy() {
+        cordova.getActivity().getApplicationContext().unregisterComponentCallbacks(trimMemoryCallbacks);
+
         while (!dbrmap.isEmpty()) {
             String dbname = dbrmap.keySet().iterator().next();
 
@@ -269,14 +382,113 @@ public class SQLitePlugin extends CordovaPlugin {
             dbrmap.remove(dbname);
             dbrmap2.remove(r.dbid);
         }
+
+        resultDelivery.stop();
     }
 
     // --------------------------------------------------------------------------
     // LOCAL METHODS
     // --------------------------------------------------------------------------
 
-    private void startDatabase(String dbname, String filename, JSONObject options, CallbackContext cbc) {
+    /**
+     * Return a benchmark payload of the requested shape & size
+     * (no database access, to measure the bridge round-trip cost).
+     */
+    private void bridgeBenchmark(JSONObject o, CallbackContext cbc) {
+        final long receivedAt = System.currentTimeMillis();
+        final String shape = o.optString("shape", "rows");
+        final int size = o.optInt("size", 0);
+
+        if (size < 0 || size > BRIDGE_BENCHMARK_MAX_SIZE) {
+            cbc.error("invalid benchmark payload size: " + size);
+        } else if (shape.equals("binary")) {
+            cbc.sendPluginResult(new PluginResult(PluginResult.Status.OK, BridgeBenchmark.binaryPayload(size)));
+        } else {
+            cbc.sendPluginResult(new MyPluginResult(
+                BridgeBenchmark.resultJSON(shape, size, receivedAt, o.optString("data", "").length())));
+        }
+    }
+
+    /**
+     * Get the data version and total changes of a database, without waiting
+     * for the requests in the DBRunner queue.
+     *
+     * Result: {"dataVersion":n,"totalChanges":n}
+     * (dataVersion null for an in-memory database, or not in WAL mode
+     * with the NORMAL locking mode)
+     */
+    private void getDataVersion(String dbname, CallbackContext cbc) throws JSONException {
         DBRunner r = dbrmap.get(dbname);
+        if (r == null) {
+            cbc.error("database not open");
+            return;
+        }
+
+        JSONObject result = new JSONObject();
+        DataVersionProbe probe = r.dataVersionProbe;
+        if (probe != null) {
+            try {
+                result.put("dataVersion", probe.dataVersion());
+            } catch (Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "couldn't get data version", e);
+                cbc.error("couldn't get data version: " + e);
+                return;
+            }
+        } else {
+            result.put("dataVersion", JSONObject.NULL);
+        }
+        result.put("totalChanges", r.publishedTotalChanges);
+        cbc.success(result);
+    }
+
+    private void closeKeptAliveDatabases() {
+        for (DBRunner r: dbrmap.values()) {
+            if (r.keepAlive > 0) {
+                try {
+                    r.q.put(new DBQuery(Action.trimMemory, null, null));
+                } catch(Exception e) {
+                    Log.e(SQLitePlugin.class.getSimpleName(), "couldn't add to queue", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Put an action request in the queue to be executed in the db thread.
+     *
+     * @param action   The action to execute
+     * @param allargs  Arguments object with dbargs and options
+     * @param cbc      Callback context from Cordova API
+     */
+    private void enqueueDBQuery(Action action, JSONObject allargs, CallbackContext cbc) throws JSONException {
+        String dbname = allargs.getJSONObject("dbargs").getString("dbname");
+        JSONObject options = allargs.has("options") ? allargs.getJSONObject("options") : new JSONObject();
+
+        DBRunner r = dbrmap.get(dbname);
+        if (r != null) {
+            try {
+                r.q.put(new DBQuery(action, options, cbc));
+            } catch(Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "couldn't add to queue", e);
+                cbc.error("couldn't add to queue");
+            }
+        } else {
+            cbc.error("database not open");
+        }
+    }
+
+    /**
+     * NOTE: Also called from a DBRunner thread, to open a database again with
+     * other options after a kept alive database was closed for real.
+     */
+    private synchronized void startDatabase(String dbname, String filename, JSONObject options, CallbackContext cbc) {
+        DBRunner r = dbrmap.get(dbname);
+
+        // reopen a database that is kept alive after close (keepAlive option):
+        if (r != null && r.reattach(options, cbc)) return;
+
+        // (kept alive database may have been closed for real in the meantime)
+        r = dbrmap.get(dbname);
 
         if (r != null) {
             // NO LONGER EXPECTED due to BUG 666 workaround solution:
@@ -289,6 +501,22 @@ public class SQLitePlugin extends CordovaPlugin {
         }
     }
 
+    /**
+     * @return the open options as a string with the keys in sorted order,
+     * to check if a database is reopened with the same options
+     */
+    private static String openOptionsKey(JSONObject options) {
+        ArrayList<String> keys = new ArrayList<String>();
+        Iterator<String> ki = options.keys();
+        while (ki.hasNext()) keys.add(ki.next());
+        String[] sorted = keys.toArray(new String[keys.size()]);
+        Arrays.sort(sorted);
+
+        StringBuilder sb = new StringBuilder();
+        for (String key: sorted) sb.append(key).append('=').append(options.opt(key)).append('\n');
+        return sb.toString();
+    }
+
     /**
      * Get a database file.
      *
@@ -313,20 +541,71 @@ public class SQLitePlugin extends CordovaPlugin {
      *
      * @param dbName   The name of the database file
      */
-    private SQLiteNativeDatabase openDatabase(String dbname, String dblocation, CallbackContext cbc, boolean old_impl_xxx_ignored, int dbid) throws Exception {
+    private SQLiteNativeDatabase openDatabase(String dbname, String dblocation, CallbackContext cbc, boolean old_impl_xxx_ignored, DBRunner r)
+            throws Exception {
+        final int dbid = r.dbid;
+
         try {
             // ASSUMPTION: no db (connection/handle) is already stored in the map
             // [should be true according to the code in DBRunner.run()]
 
+            // check the profile name before opening:
+            DurabilityProfile profile = (r.durability != null) ? DurabilityProfile.fromName(r.durability) : null;
+
+            if (r.readOnly && r.inMemory)
+                throw new SQLException("readOnly option not supported with inMemory option");
+            if (r.readOnly && profile != null)
+                throw new SQLException("durability option not supported with readOnly option");
+
             File dbfile = getDatabaseFile(dbname, dblocation);
-            Log.v("info", "Open sqlite db: " + dbfile.getAbsolutePath());
+
+            // pre-populated database from the app assets (if not already installed):
+            if (r.createFromAsset != null)
+                AssetInstaller.install(cordova.getActivity().getAssets(), r.createFromAsset, dbfile,
+                  r.createFromAssetVersion, r.createFromAssetSha256);
 
             SQLiteNativeDatabase mydb = new SQLiteNativeDatabase();
-            mydb.open(dbfile);
+            JSONObject migrationResult = null;
+
+            if (r.inMemory) {
+                Log.v("info", "Open in-memory sqlite db for: " + dbfile.getAbsolutePath());
+                mydb.openMemory();
+            } else if (r.readOnly) {
+                Log.v("info", "Open sqlite db (" + (r.immutable ? "immutable" : "read-only") + "): " +
+                  dbfile.getAbsolutePath());
+                mydb.openReadOnly(dbfile, r.immutable);
+            } else {
+                Log.v("info", "Open sqlite db: " + dbfile.getAbsolutePath());
+                mydb.open(dbfile);
+            }
+
+            try {
+                if (r.inMemoryLoad || r.inMemorySave) {
+                    r.snapshot = new MemorySnapshot(dbfile, dbid);
+                    if (r.inMemoryLoad) r.snapshot.load(mydb);
+                }
+
+                if (profile != null) mydb.executeBatchOrThrow(profile.newBatch(dbid));
+
+                if (r.cacheSize > 0) mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("PRAGMA cache_size=-" + r.cacheSize));
+
+                if (r.busyTimeout > 0) mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("PRAGMA busy_timeout=" + r.busyTimeout));
+
+                // pending schema migrations, before the open callback:
+                if (r.migrations != null) migrationResult = SchemaMigrations.apply(mydb, dbid, r.migrations);
+
+                if (!r.inMemory && DataVersionProbe.isSupported(mydb, dbid))
+                    r.dataVersionProbe = new DataVersionProbe(dbfile);
+                r.publishedTotalChanges = mydb.totalChanges();
+            } catch (Exception e) {
+                mydb.closeDatabaseNow();
+                throw e;
+            }
 
             // Indicate Android version with flat JSON interface
             JSONObject a1 = new JSONObject();
             a1.put("dbid", dbid);
+            if (migrationResult != null) a1.put("migrations", migrationResult);
             cbc.success(a1);
 
             return mydb;
@@ -608,7 +887,7 @@ public class SQLitePlugin extends CordovaPlugin {
 
     static boolean isNativeLibLoaded = false;
 
-    class SQLiteNativeDatabase extends SQLiteAndroidDatabase {
+    static class SQLiteNativeDatabase extends SQLiteAndroidDatabase {
         long mydbhandle;
 
         /**
@@ -618,14 +897,61 @@ public class SQLitePlugin extends CordovaPlugin {
          */
         @Override
         void open(File dbFile) throws Exception {
+            openNative(dbFile.getAbsolutePath(),
+              EVCoreNativeDriver.SQLC_OPEN_READWRITE | EVCoreNativeDriver.SQLC_OPEN_CREATE);
+        }
+
+        /**
+         * Open a database in read-only mode (enforced by sqlite).
+         *
+         * @param dbFile     The database File specification
+         * @param immutable  Open with the immutable=1 URI parameter: no file locking
+         *                   or change detection (the database file must not be
+         *                   changed while it is open)
+         */
+        void openReadOnly(File dbFile, boolean immutable) throws Exception {
+            if (immutable)
+                openNative(fileURI(dbFile) + "?immutable=1",
+                  EVCoreNativeDriver.SQLC_OPEN_READONLY | EVCoreNativeDriver.SQLC_OPEN_URI);
+            else
+                openNative(dbFile.getAbsolutePath(), EVCoreNativeDriver.SQLC_OPEN_READONLY);
+        }
+
+        /**
+         * @return sqlite URI filename with the path characters that have
+         * a special meaning in a URI escaped
+         */
+        private static String fileURI(File dbFile) {
+            String path = dbFile.getAbsolutePath();
+            StringBuilder sb = new StringBuilder(path.length() + 8);
+            sb.append("file:");
+            for (int i = 0; i < path.length(); ++i) {
+                char c = path.charAt(i);
+                if (c == '%') sb.append("%25");
+                else if (c == '?') sb.append("%3f");
+                else if (c == '#') sb.append("%23");
+                else sb.append(c);
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Open an in-memory database.
+         */
+        void openMemory() throws Exception {
+            openNative(":memory:",
+              EVCoreNativeDriver.SQLC_OPEN_READWRITE | EVCoreNativeDriver.SQLC_OPEN_CREATE |
+              EVCoreNativeDriver.SQLC_OPEN_MEMORY);
+        }
+
+        private void openNative(String filename, int flags) throws Exception {
             if (!isNativeLibLoaded) {
                 System.loadLibrary("sqlc-evcore-native-driver");
                 isNativeLibLoaded = true;
             }
 
             mydbhandle = EVCoreNativeDriver.sqlc_evcore_db_open(EVCoreNativeDriver.SQLC_EVCORE_API_VERSION,
-              dbFile.getAbsolutePath(),
-              EVCoreNativeDriver.SQLC_OPEN_READWRITE | EVCoreNativeDriver.SQLC_OPEN_CREATE);
+              filename, flags);
 
             if (mydbhandle < 0) throw new SQLException("open error", "failed", -(int)mydbhandle);
         }
@@ -648,19 +974,178 @@ public class SQLitePlugin extends CordovaPlugin {
         @Override
         void bugWorkaround() { }
 
+        /*
+         * NOTE: The native driver library (evcore-native-driver.jar) only returns
+         * the batch result as a Java String, which is converted from UTF-8 in JNI.
+         * FUTURE TBD: a native entry point that writes the result into a reusable
+         * direct ByteBuffer (per DBRunner) would avoid the large short-lived String,
+         * but needs a rebuild of the native driver library; Cordova would also need
+         * to send the message bytes without conversion to a String.
+         */
         String flatBatchJSON(String batch_json, int ll) {
             long ch = EVCoreNativeDriver.sqlc_evcore_db_new_qc(mydbhandle);
             String jr = EVCoreNativeDriver.sqlc_evcore_qc_execute(ch, batch_json, ll);
             EVCoreNativeDriver.sqlc_evcore_qc_finalize(ch);
             return jr;
         }
+
+        /**
+         * Execute an internal batch in the current (db) thread.
+         */
+        String executeBatch(FlatBatch batch) {
+            return flatBatchJSON(batch.toJSON(), batch.tokenLimit());
+        }
+
+        /**
+         * Execute an internal batch and throw in case any statement failed.
+         */
+        String executeBatchOrThrow(FlatBatch batch) throws Exception {
+            String jr = executeBatch(batch);
+            String errorMessage = FlatBatch.firstErrorMessage(jr);
+            if (errorMessage != null) throw new SQLException(errorMessage);
+            return jr;
+        }
+
+        /**
+         * Execute an internal batch that starts with BEGIN and commit it,
+         * or roll it back in case of any error.
+         *
+         * NOTE: the batch is reset by this method.
+         */
+        void commitBatchOrThrow(FlatBatch b) throws Exception {
+            try {
+                executeBatchOrThrow(b);
+            } catch (Exception e) {
+                b.reset();
+                executeBatch(b.sql("ROLLBACK"));
+                throw e;
+            }
+
+            b.reset();
+            executeBatchOrThrow(b.sql("COMMIT"));
+        }
+
+        int totalChanges() {
+            return EVCoreNativeDriver.sqlc_db_total_changes(mydbhandle);
+        }
+
+        /**
+         * Execute the statements of a SQL script, in chunks of up to
+         * SCRIPT_BATCH_SIZE statements per native call, and throw
+         * at the first error.
+         *
+         * NOTE: The statements after a failed statement in the same chunk are
+         * also executed, expected to be rolled back by the caller.
+         *
+         * @return number of statements executed
+         */
+        int executeScript(SqlScriptReader sr, int dbid) throws Exception {
+            int statementCount = 0;
+            FlatBatch b = new FlatBatch(dbid);
+            int[] lineNumbers = new int[SCRIPT_BATCH_SIZE];
+
+            for (;;) {
+                String sql = sr.next();
+
+                if (sql != null) {
+                    lineNumbers[b.statementCount()] = sr.getStatementLineNumber();
+                    b.sql(sql);
+                }
+
+                if (b.statementCount() > 0 && (b.statementCount() == SCRIPT_BATCH_SIZE || sql == null)) {
+                    String jr = executeBatch(b);
+                    int errorIndex = FlatBatch.firstErrorIndex(jr);
+                    if (errorIndex >= 0) {
+                        throw new SQLException("error in statement " + (statementCount + errorIndex + 1) +
+                            " (line " + lineNumbers[errorIndex] + "): " + FlatBatch.firstErrorMessage(jr));
+                    }
+                    statementCount += b.statementCount();
+                    b.reset();
+                }
+
+                if (sql == null) return statementCount;
+            }
+        }
+
+        /**
+         * Execute a single query (such as a PRAGMA) that returns an integer value.
+         */
+        long queryLong(String sql) throws Exception {
+            ArrayList<Object[]> rows = FlatBatch.firstResultRows(executeBatchOrThrow(new FlatBatch(0).sql(sql)));
+            if (rows.size() != 1 || !(rows.get(0)[0] instanceof Number))
+                throw new SQLException("unexpected result for: " + sql);
+            return ((Number)rows.get(0)[0]).longValue();
+        }
+
+        /**
+         * Check for a transaction in progress, since the native driver library
+         * does not expose sqlite3_get_autocommit().
+         */
+        boolean inTransaction() throws Exception {
+            // BEGIN fails in case a transaction is already in progress:
+            if (FlatBatch.firstErrorMessage(executeBatch(new FlatBatch(0).sql("BEGIN"))) != null)
+                return true;
+
+            executeBatchOrThrow(new FlatBatch(0).sql("COMMIT"));
+            return false;
+        }
     }
 
     private class DBRunner implements Runnable {
         final int dbid;
         final String dbname;
         final String filename;
+        // all open options, to check a reopen within the keep-alive period:
+        final String openOptions;
         final String dblocation;
+        final String durability;
+        final boolean readOnly;
+        final boolean immutable;
+        final String createFromAsset;
+        final String createFromAssetVersion;
+        final String createFromAssetSha256;
+        final JSONArray migrations;
+        final boolean inMemory;
+        final boolean inMemoryLoad;
+        final boolean inMemorySave;
+        final long inMemorySaveInterval;
+        final int cacheSize;
+        final int busyTimeout;
+        final long keepAlive;
+        final long idleMaintenanceInterval;
+        final IdleMaintenance idleMaintenance;
+        final TraceRingBuffer trace;
+        final StatementProfiler profiler;
+        final AllocationStats allocationStats;
+        final BusyRetryPolicy busyRetry;
+        // read-only batch waiting for its next busy retry, with the retry time:
+        private DBQuery busyQuery = null;
+        private long busyRetryAt = 0;
+        // results of other requests handled while a busy retry is pending,
+        // delivered after the result of the retried batch:
+        private final ArrayList<HeldResult> heldResults = new ArrayList<HeldResult>();
+        // close request received while a busy retry is pending (handled after its last attempt):
+        private DBQuery heldQuery = null;
+        // statement timing of the current batch (timing flag):
+        final ArrayList<long[]> statementTiming = new ArrayList<long[]>();
+        MemorySnapshot snapshot = null;
+        // table change notifications (subscribeChanges action):
+        ChangeSubscription changeSubscription = null;
+        // for getDataVersion (not queued):
+        volatile DataVersionProbe dataVersionProbe = null;
+        // total changes on the db handle after the last request:
+        volatile int publishedTotalChanges = 0;
+        long nextSnapshotTime = 0;
+        // snapshot save deferred until the transaction in progress has ended:
+        boolean snapshotPending = false;
+        // keep-alive state after close (guarded by the DBRunner lock):
+        private boolean parked = false;
+        private boolean detached = false;
+        private int pendingReopens = 0;
+        // (used in the db thread only)
+        private long parkedUntil = 0;
+        // reopen with other options, handled after the database is closed for real:
+        private DBQuery reopenQuery = null;
         /*- *** XXX TBD SKIP FOR NOW:
         // expose oldImpl:
         boolean oldImpl;
@@ -680,6 +1165,7 @@ public class SQLitePlugin extends CordovaPlugin {
             this.dbid = dbid;
             this.dbname = dbname;
             this.filename = filename;
+            this.openOptions = openOptionsKey(options);
             /*- *** XXX TBD SKIP FOR NOW:
             this.oldImpl = options.has("androidOldDatabaseImplementation");
             //- Log.v(SQLitePlugin.class.getSimpleName(), "Android db implementation: ...");
@@ -697,13 +1183,57 @@ public class SQLitePlugin extends CordovaPlugin {
             }
             this.dblocation = mydblocation;
 
+            this.durability = options.has("durability") ? options.optString("durability") : null;
+
+            // read-only mode enforced by sqlite (immutable implies read-only):
+            this.immutable = options.optBoolean("immutable", false);
+            this.readOnly = this.immutable || options.optBoolean("readOnly", false);
+
+            this.createFromAsset = options.has("createFromAsset") ? options.optString("createFromAsset") : null;
+            this.createFromAssetVersion =
+                options.has("createFromAssetVersion") ? options.optString("createFromAssetVersion") : null;
+            this.createFromAssetSha256 =
+                options.has("createFromAssetSha256") ? options.optString("createFromAssetSha256") : null;
+
+            this.migrations = options.optJSONArray("migrations");
+
+            this.inMemory = options.optBoolean("inMemory", false);
+            this.inMemoryLoad = this.inMemory && options.optBoolean("inMemoryLoad", false);
+            this.inMemorySave = this.inMemory && options.optBoolean("inMemorySave", false);
+            this.inMemorySaveInterval = this.inMemorySave ? options.optLong("inMemorySaveInterval", 0) : 0;
+
+            // page cache size limit in KiB (0: default):
+            this.cacheSize = options.optInt("cacheSize", 0);
+
+            // sqlite busy handler timeout in milliseconds:
+            this.busyTimeout = options.optInt("busyTimeout", 0);
+
+            // keep the database open for this number of milliseconds after close:
+            this.keepAlive = options.optLong("keepAlive", 0);
+
+            // run maintenance after the queue is idle for this number of milliseconds:
+            this.idleMaintenanceInterval = options.optLong("idleMaintenance", 0);
+            this.idleMaintenance = (this.idleMaintenanceInterval > 0) ? new IdleMaintenance(dbid) : null;
+
+            this.trace = options.optBoolean("trace", false) ?
+                new TraceRingBuffer(dbid, options.optInt("traceBufferSize", TraceRingBuffer.DEFAULT_CAPACITY)) : null;
+
+            this.profiler = options.optBoolean("profile", false) ?
+                new StatementProfiler(options.optInt("profileMaxEntries", StatementProfiler.DEFAULT_MAX_ENTRIES)) : null;
+
+            this.allocationStats = options.optBoolean("allocationStats", false) ? new AllocationStats() : null;
+
+            final int busyRetries = options.optInt("busyRetries", 0);
+            this.busyRetry = (busyRetries > 0) ? new BusyRetryPolicy(busyRetries,
+                options.optLong("busyRetryDelay", BusyRetryPolicy.DEFAULT_INITIAL_DELAY)) : null;
+
             /*- *** XXX TBD SKIP FOR NOW:
             if (this.bugWorkaround)
                 Log.v(SQLitePlugin.class.getSimpleName(), "Android db closing/locking workaround applied");
             //- XXX *** */
 
             this.q = new LinkedBlockingQueue<DBQuery>();
-            this.openCbc = cbc;
+            this.openCbc = resultDelivery.callbackContext(cbc);
         }
 
         public void run() {
@@ -713,7 +1243,7 @@ public class SQLitePlugin extends CordovaPlugin {
                 //-     this.mydb = this.mydb1 = openDatabase(dbname, dblocation, this.openCbc, this.oldImpl, this.dbid);
                 //- else
                 //-     this.mydb = openDatabase2(dbname, dblocation, this.openCbc, this.oldImpl);
-                this.mydb1 = openDatabase(filename, dblocation, this.openCbc, false, this.dbid);
+                this.mydb1 = openDatabase(filename, dblocation, this.openCbc, false, this);
             } catch (Exception e) {
                 Log.e(SQLitePlugin.class.getSimpleName(), "unexpected error, stopping db thread", e);
                 dbrmap.remove(dbname);
@@ -721,20 +1251,45 @@ public class SQLitePlugin extends CordovaPlugin {
                 return;
             }
 
+            if (allocationStats != null) allocationStats.start();
+
             DBQuery dbq = null;
 
             try {
-                dbq = q.take();
+                dbq = nextDBQuery();
 
                 while (!dbq.stop) {
+                    // (flat JSON batch requests only)
+                    final boolean countAllocations = (allocationStats != null && dbq.action == null);
+                    if (countAllocations) allocationStats.begin();
+
                     //- XXX [TBD] SKIP oldImpl functionality for now:
                     //- if (oldImpl) {
                     //-     mydb.executeSqlBatch(dbq.queries, dbq.jsonparams, dbq.cbc);
                     //- } else {
-                    if (true) // XXX TBD
-                        dbq.cbc.sendPluginResult(new MyPluginResult(mydb1.flatBatchJSON(dbq.fj, dbq.ll)));
+                    String jr = null;
+                    if (dbq.action != null)
+                        runAction(dbq);
+                    else if (trace != null || profiler != null || dbq.atomic || dbq.timing)
+                        executeInstrumented(dbq);
+                    else if (true) { // XXX TBD
+                        jr = mydb1.flatBatchJSON(dbq.fj, dbq.ll);
+                        if (busyRetry != null) jr = retryIfBusy(dbq, jr);
+                    }
                     //- }
 
+                    if (changeSubscription != null) changeSubscription.afterRequest(mydb1);
+
+                    // (after the change subscription cleanup, which also counts in the total changes,
+                    // and before the plain batch result so that it is current for getDataVersion)
+                    publishedTotalChanges = mydb1.totalChanges();
+
+                    if (jr != null) dbq.cbc.sendPluginResult(new MyPluginResult(jr));
+
+                    if (countAllocations) allocationStats.end();
+
+                    if (busyQuery == null && !heldResults.isEmpty()) releaseHeldResults();
+
                     /* ** XXX TBD SKIP FOR NOW:
                     if (this.oldImpl && this.bugWorkaround && dbq.queries.length == 1 && dbq.queries[0] == "COMMIT")
                         mydb.bugWorkaround();
@@ -742,7 +1297,7 @@ public class SQLitePlugin extends CordovaPlugin {
                     //- executeSqlBatch(mydbc, dbq.queries, dbq.flatlist, dbq.cbc);
                     // */
 
-                    dbq = q.take();
+                    dbq = nextDBQuery();
                 }
             } catch (Exception e) {
                 Log.e(SQLitePlugin.class.getSimpleName(), "unexpected error", e);
@@ -752,10 +1307,33 @@ public class SQLitePlugin extends CordovaPlugin {
                 try {
                     closeDatabaseNow(dbname);
 
-                    dbrmap.remove(dbname); // (should) remove ourself
-                    dbrmap.remove(dbid); // (should) remove ourself
+                    if (changeSubscription != null) {
+                        changeSubscription.closed();
+                        changeSubscription = null;
+                    }
+
+                    String snapshotError = null;
+                    if (inMemorySave && !dbq.delete && snapshot.hasChanges(mydb1)) {
+                        try {
+                            snapshot.save(mydb1);
+                        } catch (Exception e) {
+                            Log.e(SQLitePlugin.class.getSimpleName(), "couldn't save in-memory database snapshot", e);
+                            snapshotError = "couldn't save in-memory database snapshot: " + e;
+                        }
+                    }
+
+                    if (dataVersionProbe != null) dataVersionProbe.close();
+
+                    mydb1.closeDatabaseNow();
+
+                    detach(); // (should) remove ourself
 
-                    if (!dbq.delete) {
+                    // NOTE: no callback in case the keep-alive period expired
+                    if (dbq.cbc == null) {
+                        if (snapshotError != null) Log.e(SQLitePlugin.class.getSimpleName(), snapshotError);
+                    } else if (snapshotError != null) {
+                        dbq.cbc.error(snapshotError);
+                    } else if (!dbq.delete) {
                         dbq.cbc.success();
                     } else {
                         try {
@@ -776,11 +1354,741 @@ public class SQLitePlugin extends CordovaPlugin {
                         dbq.cbc.error("couldn't close database: " + e);
                     }
                 }
+
+                // reject any request that was queued behind the close
+                // (such as a reopen while a kept alive database was deleted):
+                for (DBQuery p = q.poll(); p != null; p = q.poll())
+                    if (p.cbc != null) p.cbc.error("database closed");
+
+                // open again with the options of the reopen (new db thread):
+                if (reopenQuery != null) startDatabase(dbname, filename, reopenQuery.options, reopenQuery.cbc);
+            }
+
+            if (allocationStats != null) allocationStats.stop();
+        }
+
+        /**
+         * Execute a flat JSON batch request as an atomic batch,
+         * and/or with trace events, statement profiling, and/or statement timing.
+         */
+        private void executeInstrumented(DBQuery dbq) {
+            final int id = dbq.traceId;
+            if (trace != null) {
+                trace.record(TraceRingBuffer.DEQUEUE, id);
+                trace.record(TraceRingBuffer.NATIVE_BEGIN, id);
             }
+
+            if (dbq.timing) statementTiming.clear();
+
+            String jr = dbq.atomic ? executeAtomic(dbq) : executeFlatBatch(dbq);
+            if (busyRetry != null && !dbq.atomic) jr = retryIfBusy(dbq, jr);
+
+            if (jr == null) {
+                // (result after the busy retry)
+                if (trace != null) trace.record(TraceRingBuffer.NATIVE_END, id);
+                return;
+            }
+
+            // (no timing in case of a batch error)
+            if (dbq.timing && !jr.startsWith("[\"batcherror\"")) jr = StatementProfiler.withTiming(jr, statementTiming);
+
+            if (trace != null) trace.record(TraceRingBuffer.NATIVE_END, id);
+            publishedTotalChanges = mydb1.totalChanges();
+            // (deliver trace events recorded by the delivery thread)
+            resultDelivery.sendPluginResult(dbq.cbc, new MyPluginResult(jr), trace, id);
         }
+
+        /**
+         * Retry a read-only flat JSON batch that failed with SQLITE_BUSY or
+         * SQLITE_LOCKED (busyRetries option), with exponential backoff.
+         *
+         * The batch is kept for the retry (see nextDBQuery()), so that the other
+         * queued requests are handled during the backoff wait, with their results
+         * held until the result of the retried batch is sent. The busy error is
+         * reported after the last retry, or in case a close request is waiting.
+         *
+         * @return result to send, or null in case the batch will be retried
+         */
+        private String retryIfBusy(DBQuery dbq, String jr) {
+            try {
+                if (!BusyRetryPolicy.hasBusyError(jr)) {
+                    if (dbq.busyRetries > 0) busyRetry.recovered();
+                    return jr;
+                }
+
+                final int kind = BusyRetryPolicy.batchKind(dbq.fj);
+                if (kind == BusyRetryPolicy.NOT_READ_ONLY) return jr;
+
+                if (dbq.busyRetries >= busyRetry.maxRetries || heldQuery != null) {
+                    busyRetry.failed();
+                    return jr;
+                }
+
+                // end the read transaction started by the failed attempt
+                // (before any other request is handled):
+                if (kind == BusyRetryPolicy.READ_ONLY_WITH_BEGIN && FlatBatch.firstErrorIndex(jr) != 0)
+                    mydb1.executeBatch(new FlatBatch(dbid).sql("ROLLBACK"));
+
+                busyRetry.retried();
+                busyRetryAt = SystemClock.elapsedRealtime() + busyRetry.delay(dbq.busyRetries);
+                ++dbq.busyRetries;
+                busyQuery = dbq;
+                return null;
+            } catch (JSONException e) {
+                // not expected
+                Log.e(SQLitePlugin.class.getSimpleName(), "unexpected batch result", e);
+            }
+
+            return jr;
+        }
+
+        private DBQuery takeBusyQuery() {
+            DBQuery dbq = busyQuery;
+            busyQuery = null;
+            return dbq;
+        }
+
+        /**
+         * Deliver the results that were held while a busy retry was pending, in order.
+         */
+        private void releaseHeldResults() {
+            for (HeldResult h: heldResults) h.target.sendPluginResult(h.result);
+            heldResults.clear();
+        }
+
+        private final class HeldResult {
+            final CallbackContext target;
+            final PluginResult result;
+
+            HeldResult(CallbackContext target, PluginResult result) {
+                this.target = target;
+                this.result = result;
+            }
+        }
+
+        /**
+         * Callback context of a request handled while a busy retry is pending,
+         * with its results held (in the DBRunner thread) until the result
+         * of the retried batch is sent.
+         *
+         * NOTE: success() & error() send their results by sendPluginResult().
+         */
+        private final class HeldCallbackContext extends CallbackContext {
+            final CallbackContext target;
+
+            HeldCallbackContext(CallbackContext target) {
+                super(target.getCallbackId(), null);
+                this.target = target;
+            }
+
+            @Override
+            public void sendPluginResult(PluginResult result) {
+                if (busyQuery != null || !heldResults.isEmpty()) {
+                    heldResults.add(new HeldResult(target, result));
+                } else {
+                    target.sendPluginResult(result);
+                }
+            }
+        }
+
+        private String executeFlatBatch(DBQuery dbq) {
+            if (profiler != null || dbq.timing)
+                return StatementProfiler.executeSplit(mydb1, dbq.fj, dbq.ll, profiler,
+                    dbq.timing ? statementTiming : null, false);
+            return mydb1.flatBatchJSON(dbq.fj, dbq.ll);
+        }
+
+        /**
+         * Execute a flat JSON batch request in a transaction, in a single
+         * request from the Javascript side: BEGIN, then the batch, then COMMIT
+         * or ROLLBACK in case any statement failed.
+         *
+         * The batch is executed one statement at a time, stopping at the first
+         * failed statement, in case it contains a statement with effects that
+         * are not undone by ROLLBACK (such as ATTACH or PRAGMA) or that would end
+         * the transaction, or with statement profiling or timing. Otherwise the
+         * whole batch is executed in a single native call and the statements
+         * after a failed statement are still executed before the rollback.
+         *
+         * @return batch results, or batch error in case of BEGIN or COMMIT failure
+         */
+        private String executeAtomic(DBQuery dbq) {
+            try {
+                // BEGIN in its own call so that nothing is executed in case it fails
+                // (such as with another transaction in progress):
+                String br = mydb1.executeBatch(new FlatBatch(dbid).sql("BEGIN"));
+                String errorMessage = FlatBatch.firstErrorMessage(br);
+                if (errorMessage != null)
+                    return FlatBatch.batchErrorJSON("unable to begin transaction: " + errorMessage);
+
+                String jr = (profiler != null || dbq.timing || FlatBatch.hasNonTransactionalStatement(dbq.fj)) ?
+                    StatementProfiler.executeSplit(mydb1, dbq.fj, dbq.ll, profiler,
+                        dbq.timing ? statementTiming : null, true) :
+                    mydb1.flatBatchJSON(dbq.fj, dbq.ll);
+
+                if (FlatBatch.hasError(jr)) {
+                    mydb1.executeBatch(new FlatBatch(dbid).sql("ROLLBACK"));
+                    return jr;
+                }
+
+                errorMessage = FlatBatch.firstErrorMessage(mydb1.executeBatch(new FlatBatch(dbid).sql("COMMIT")));
+                if (errorMessage != null) {
+                    mydb1.executeBatch(new FlatBatch(dbid).sql("ROLLBACK"));
+                    return FlatBatch.batchErrorJSON("error while trying to commit: " + errorMessage);
+                }
+
+                return jr;
+            } catch (JSONException e) {
+                // not expected
+                Log.e(SQLitePlugin.class.getSimpleName(), "unexpected batch result", e);
+                mydb1.executeBatch(new FlatBatch(dbid).sql("ROLLBACK"));
+                return FlatBatch.batchErrorJSON("unexpected batch result: " + e);
+            }
+        }
+
+        /**
+         * Reattach to this database if it is (or will be) kept alive after close.
+         * Called from the plugin thread.
+         *
+         * NOTE: The reopen request is put in the queue so that it is handled
+         * after a close request that may still be waiting in the queue.
+         * In case the open options are not the same, the database is closed
+         * for real and then opened again with the options of the reopen.
+         *
+         * @return true if the reopen request was put in the queue
+         */
+        synchronized boolean reattach(JSONObject options, CallbackContext cbc) {
+            if (keepAlive <= 0 || detached) return false;
+            ++pendingReopens;
+            q.offer(new DBQuery(Action.open, options, cbc));
+            return true;
+        }
+
+        private synchronized void park() {
+            parked = true;
+        }
+
+        private synchronized void resume() {
+            parked = false;
+            --pendingReopens;
+        }
+
+        /**
+         * @return true if the database was still kept alive (with no reopen request),
+         * and is now removed from the maps to be closed for real
+         */
+        private synchronized boolean unpark() {
+            if (!parked || pendingReopens > 0) return false;
+            parked = false;
+            detach();
+            return true;
+        }
+
+        private synchronized void detach() {
+            if (!detached) {
+                detached = true;
+                dbrmap.remove(dbname);
+                dbrmap2.remove(dbid);
+            }
+        }
+
+        /**
+         * Get the next request from the queue. In case of an in-memory database
+         * with a save interval, save the snapshot whenever the interval expires
+         * (if changed), either while waiting or before the next request.
+         *
+         * With the keepAlive option, a close request keeps the database open
+         * (parked) until it is reopened, the keep-alive period expires, or
+         * memory is trimmed. Returns a close request with no callback to close
+         * the database for real.
+         *
+         * With the idleMaintenance option, run one maintenance step at a time
+         * once the queue is idle for the interval, until a request arrives.
+         *
+         * With the busyRetries option, returns a read-only batch that is waiting
+         * for a busy retry (see retryIfBusy()) once its backoff delay has expired,
+         * and the other requests in the meantime (with their results held).
+         */
+        private DBQuery nextDBQuery() throws InterruptedException {
+            long idleSince = SystemClock.elapsedRealtime();
+
+            for (;;) {
+                if (snapshotPending) saveSnapshot(null);
+
+                // next attempt of a read-only batch (busyRetries option), when due:
+                if (busyQuery != null && SystemClock.elapsedRealtime() >= busyRetryAt) return takeBusyQuery();
+
+                long deadline = Long.MAX_VALUE;
+                if (inMemorySaveInterval > 0) deadline = nextSnapshotTime;
+                if (busyQuery != null && busyRetryAt < deadline) deadline = busyRetryAt;
+                if (parkedUntil > 0 && parkedUntil < deadline) deadline = parkedUntil;
+                if (idleMaintenance != null && idleSince + idleMaintenanceInterval < deadline &&
+                        idleMaintenance.isPending(mydb1))
+                    deadline = idleSince + idleMaintenanceInterval;
+
+                DBQuery dbq;
+                if (heldQuery != null) {
+                    dbq = heldQuery;
+                    heldQuery = null;
+                } else if (deadline == Long.MAX_VALUE) {
+                    dbq = q.take();
+                } else {
+                    long wait = deadline - SystemClock.elapsedRealtime();
+                    dbq = (wait > 0) ? q.poll(wait, TimeUnit.MILLISECONDS) : q.poll();
+                }
+
+                final long now = SystemClock.elapsedRealtime();
+
+                if (inMemorySaveInterval > 0 && now >= nextSnapshotTime) {
+                    saveSnapshot(null);
+                    nextSnapshotTime = now + inMemorySaveInterval;
+                }
+
+                if (dbq == null) {
+                    if (parkedUntil > 0 && now >= parkedUntil) {
+                        parkedUntil = 0;
+                        if (unpark()) return new DBQuery(false, null);
+                    }
+
+                    // next maintenance step (if pending), or wait another
+                    // interval in case a transaction is in progress:
+                    if (idleMaintenance != null && busyQuery == null && now >= idleSince + idleMaintenanceInterval &&
+                            idleMaintenance.isPending(mydb1) && !idleMaintenance.runStep(mydb1))
+                        idleSince = now;
+                    continue;
+                }
+
+                if (busyQuery != null && dbq.stop) {
+                    // last attempt of the read-only batch, then the close:
+                    heldQuery = dbq;
+                    return takeBusyQuery();
+                }
+
+                if (dbq.action == Action.open) {
+                    resume();
+                    parkedUntil = 0;
+
+                    if (!openOptions.equals(openOptionsKey(dbq.options))) {
+                        // reopened with other options: close for real, then open again
+                        reopenQuery = dbq;
+                        return new DBQuery(false, null);
+                    }
+
+                    // reopened while kept alive, with a warm cache:
+                    try {
+                        JSONObject a1 = new JSONObject();
+                        a1.put("dbid", dbid);
+                        // (same migrations, already applied)
+                        if (migrations != null) a1.put("migrations", SchemaMigrations.apply(mydb1, dbid, migrations));
+                        dbq.cbc.success(a1);
+                    } catch (Exception e) {
+                        Log.e(SQLitePlugin.class.getSimpleName(), "couldn't reopen database", e);
+                        dbq.cbc.error("can't open database " + e);
+                    }
+                    continue;
+                }
+
+                if (dbq.action == Action.trimMemory) {
+                    if (parkedUntil > 0 && unpark()) {
+                        parkedUntil = 0;
+                        return new DBQuery(false, null);
+                    }
+                    continue;
+                }
+
+                if (dbq.close && !dbq.delete && keepAlive > 0) {
+                    // no notifications after close:
+                    if (changeSubscription != null) {
+                        changeSubscription.stop(mydb1);
+                        changeSubscription = null;
+                    }
+                    if (inMemorySave) saveSnapshot(null);
+                    park();
+                    parkedUntil = now + keepAlive;
+                    if (dbq.cbc != null) dbq.cbc.success();
+                    continue;
+                }
+
+                // results held until the result of the read-only batch waiting for a busy retry:
+                if (busyQuery != null && dbq.cbc != null) dbq.cbc = new HeldCallbackContext(dbq.cbc);
+
+                return dbq;
+            }
+        }
+
+        /**
+         * Execute an action request in the db thread.
+         */
+        void runAction(DBQuery dbq) {
+            switch (dbq.action) {
+                case importFile:
+                    importFile(dbq.options, dbq.cbc);
+                    break;
+
+                case saveSnapshot:
+                    saveSnapshot(dbq.cbc);
+                    break;
+
+                case getDatabaseStats:
+                    getDatabaseStats(dbq.options, dbq.cbc);
+                    break;
+
+                case exportTrace:
+                    if (trace != null)
+                        dbq.cbc.sendPluginResult(new MyPluginResult(trace.toChromeTraceJSON()));
+                    else
+                        dbq.cbc.error("trace is not enabled");
+                    break;
+
+                case getStatementProfile:
+                    getStatementProfile(dbq.options, dbq.cbc);
+                    break;
+
+                case subscribeChanges:
+                    subscribeChanges(dbq.options, dbq.cbc);
+                    break;
+
+                case unsubscribeChanges:
+                    if (changeSubscription != null) {
+                        changeSubscription.stop(mydb1);
+                        changeSubscription = null;
+                    }
+                    dbq.cbc.success();
+                    break;
+
+                case queryPage:
+                    queryPage(dbq.options, dbq.cbc);
+                    break;
+
+                case executeScript:
+                    executeScript(dbq.options, dbq.cbc);
+                    break;
+
+                default:
+                    dbq.cbc.error("INTERNAL ERROR: unexpected action: " + dbq.action);
+            }
+        }
+
+        /**
+         * Get a page of rows with keyset pagination.
+         */
+        private void queryPage(JSONObject options, CallbackContext cbc) {
+            try {
+                cbc.success(KeysetPager.page(mydb1, dbid, options));
+            } catch (Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "couldn't get page", e);
+                cbc.error("couldn't get page: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Subscribe to table change notifications (replaces any previous subscription).
+         */
+        private void subscribeChanges(JSONObject options, CallbackContext cbc) {
+            if (changeSubscription != null) {
+                changeSubscription.stop(mydb1);
+                changeSubscription = null;
+            }
+
+            try {
+                JSONArray tables = (options != null) ? options.optJSONArray("tables") : null;
+                changeSubscription = ChangeSubscription.start(mydb1, dbid, tables, cbc);
+            } catch (Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "couldn't subscribe to table changes", e);
+                cbc.error("couldn't subscribe to table changes: " + e);
+            }
+        }
+
+        /**
+         * Save the in-memory database snapshot, if changed since last loaded or saved.
+         *
+         * A save requested by the plugin (interval or app paused) is deferred in case
+         * a transaction is in progress, until the next request has finished.
+         *
+         * @param cbc   Callback context, or null for a save requested by the plugin
+         */
+        private void saveSnapshot(CallbackContext cbc) {
+            if (!inMemorySave) {
+                if (cbc != null) cbc.error("in-memory database snapshot save is not enabled");
+                return;
+            }
+
+            try {
+                boolean changed = snapshot.hasChanges(mydb1);
+
+                // (ATTACH fails in case a transaction is in progress)
+                if (changed && mydb1.inTransaction()) {
+                    if (cbc != null) {
+                        cbc.error("couldn't save in-memory database snapshot: transaction in progress");
+                    } else {
+                        snapshotPending = true;
+                    }
+                    return;
+                }
+
+                if (cbc == null) snapshotPending = false;
+                if (changed) snapshot.save(mydb1);
+
+                if (cbc != null) {
+                    JSONObject r = new JSONObject();
+                    r.put("saved", changed);
+                    cbc.success(r);
+                }
+            } catch (Exception e) {
+                if (cbc == null) snapshotPending = false;
+                Log.e(SQLitePlugin.class.getSimpleName(), "couldn't save in-memory database snapshot", e);
+                if (cbc != null) cbc.error("couldn't save in-memory database snapshot: " + e);
+            }
+        }
+
+        /**
+         * Report the statements with the highest total time (profile option).
+         */
+        private void getStatementProfile(JSONObject options, CallbackContext cbc) {
+            if (profiler == null) {
+                cbc.error("profile is not enabled");
+                return;
+            }
+
+            try {
+                JSONObject r = new JSONObject();
+                r.put("statements", profiler.toJSON(options.optInt("limit", 20)));
+                if (options.optBoolean("reset", false)) profiler.reset();
+                cbc.success(r);
+            } catch (Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "couldn't get statement profile", e);
+                cbc.error("couldn't get statement profile: " + e);
+            }
+        }
+
+        /**
+         * Report database page & cache memory statistics.
+         *
+         * NOTE: The cache limit is reported since the actual cache memory
+         * usage (sqlite3_db_status) is not available from the native driver library.
+         *
+         * With the allocationStats option: allocation counts of the flat JSON
+         * batch requests (reset after reporting with the reset option).
+         *
+         * With the busyRetries option: busy retry counts.
+         */
+        private void getDatabaseStats(JSONObject options, CallbackContext cbc) {
+            try {
+                long pageSize = mydb1.queryLong("PRAGMA page_size");
+                long cacheSize = mydb1.queryLong("PRAGMA cache_size");
+
+                JSONObject r = new JSONObject();
+                r.put("pageSize", pageSize);
+                r.put("pageCount", mydb1.queryLong("PRAGMA page_count"));
+                r.put("freelistCount", mydb1.queryLong("PRAGMA freelist_count"));
+                r.put("cacheSize", cacheSize);
+                // negative cache_size value is in KiB, otherwise number of pages:
+                r.put("cacheLimitBytes", (cacheSize < 0) ? -cacheSize * 1024 : cacheSize * pageSize);
+                r.put("totalChanges", mydb1.totalChanges());
+                if (allocationStats != null) {
+                    r.put("allocation", allocationStats.toJSON());
+                    if (options.optBoolean("reset", false)) allocationStats.reset();
+                }
+                if (busyRetry != null) r.put("busyRetries", busyRetry.toJSON());
+                cbc.success(r);
+            } catch (Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "couldn't get database stats", e);
+                cbc.error("couldn't get database stats: " + e);
+            }
+        }
+
+        /**
+         * Execute a SQL script (inline or from a local file) in a single transaction,
+         * with the statements executed in chunks of up to SCRIPT_BATCH_SIZE per native call.
+         *
+         * Result: {"statements":n,"ms":n}, or the first error (the transaction is rolled back).
+         */
+        private void executeScript(JSONObject o, CallbackContext cbc) {
+            long startTime = System.currentTimeMillis();
+            int statementCount = 0;
+            boolean inTransaction = false;
+            SqlScriptReader sr = null;
+
+            try {
+                if (o.has("file")) {
+                    String fileArg = o.getString("file");
+                    File file = fileArg.startsWith("file:") ? new File(new URI(fileArg)) : new File(fileArg);
+                    sr = new SqlScriptReader(new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"),
+                        IMPORT_READ_BUFFER_SIZE));
+                } else {
+                    sr = new SqlScriptReader(new StringReader(o.getString("sql")));
+                }
+
+                mydb1.executeBatchOrThrow(new FlatBatch(dbid).sql("BEGIN"));
+                inTransaction = true;
+
+                statementCount = mydb1.executeScript(sr, dbid);
+
+                mydb1.executeBatchOrThrow(new FlatBatch(dbid).sql("COMMIT"));
+                inTransaction = false;
+
+                JSONObject r = new JSONObject();
+                r.put("statements", statementCount);
+                r.put("ms", System.currentTimeMillis() - startTime);
+                cbc.success(r);
+
+            } catch (Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "script error", e);
+                if (inTransaction) mydb1.executeBatch(new FlatBatch(dbid).sql("ROLLBACK"));
+                cbc.error("script error: " + e.getMessage());
+            } finally {
+                if (sr != null) sr.close();
+            }
+        }
+
+        /**
+         * Import records from a local CSV or JSON lines file into a table,
+         * using one multi-row INSERT statement for each chunk of records
+         * with a commit after each batch of records.
+         */
+        private void importFile(JSONObject o, CallbackContext cbc) {
+            long startTime = System.currentTimeMillis();
+            long rowsImported = 0;
+            ImportRecordReader rr = null;
+
+            try {
+                String table = o.getString("table");
+                String fileArg = o.getString("file");
+                File file = fileArg.startsWith("file:") ? new File(new URI(fileArg)) : new File(fileArg);
+
+                String format = o.has("format") ? o.getString("format") :
+                    (fileArg.endsWith(".jsonl") || fileArg.endsWith(".ndjson") || fileArg.endsWith(".json")) ? "jsonl" : "csv";
+                if (!format.equals("csv") && !format.equals("jsonl"))
+                    throw new IllegalArgumentException("unknown import format: " + format);
+
+                int batchSize = o.has("batchSize") ? o.getInt("batchSize") : IMPORT_DEFAULT_BATCH_SIZE;
+                if (batchSize < 1) batchSize = 1;
+                boolean progress = o.has("progress") && o.getBoolean("progress");
+
+                String[] columns = null;
+                if (o.has("columns")) {
+                    JSONArray ca = o.getJSONArray("columns");
+                    columns = new String[ca.length()];
+                    for (int i = 0; i < columns.length; ++i) columns[i] = ca.getString(i);
+                }
+                boolean header = o.has("header") ? o.getBoolean("header") : (columns == null);
+
+                rr = new ImportRecordReader(new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"),
+                    IMPORT_READ_BUFFER_SIZE), format.equals("jsonl"), columns, header);
+
+                columns = rr.getColumns();
+                if (columns == null || columns.length == 0) {
+                    // nothing to import:
+                    JSONObject r = new JSONObject();
+                    r.put("rowsImported", 0);
+                    cbc.success(r);
+                    return;
+                }
+
+                final int ncols = columns.length;
+                final int rowsPerInsert = Math.max(1, Math.min(IMPORT_MAX_VARIABLES / ncols, batchSize));
+
+                StringBuilder sb = new StringBuilder("INSERT INTO ");
+                appendQuotedIdentifier(sb, table);
+                sb.append(" (");
+                for (int i = 0; i < ncols; ++i) {
+                    if (i > 0) sb.append(',');
+                    appendQuotedIdentifier(sb, columns[i]);
+                }
+                sb.append(") VALUES ");
+                final String insertPrefix = sb.toString();
+                final String fullInsert = insertValuesSQL(insertPrefix, ncols, rowsPerInsert);
+
+                Object[][] chunk = new Object[rowsPerInsert][];
+                int chunkRows = 0;
+                int batchRows = 0;
+
+                FlatBatch b = new FlatBatch(dbid);
+                b.sql("BEGIN");
+
+                Object[] record;
+                for (;;) {
+                    record = rr.next();
+
+                    if (record != null) {
+                        chunk[chunkRows++] = record;
+                        ++batchRows;
+                    }
+
+                    if (chunkRows > 0 && (chunkRows == rowsPerInsert || batchRows == batchSize || record == null)) {
+                        String insertSQL = (chunkRows == rowsPerInsert) ? fullInsert :
+                            insertValuesSQL(insertPrefix, ncols, chunkRows);
+                        b.sql(insertSQL, chunkRows * ncols);
+                        for (int i = 0; i < chunkRows; ++i)
+                            for (int j = 0; j < ncols; ++j) b.param(chunk[i][j]);
+                        chunkRows = 0;
+                    }
+
+                    if (batchRows > 0 && (batchRows == batchSize || record == null)) {
+                        mydb1.commitBatchOrThrow(b);
+                        rowsImported += batchRows;
+                        batchRows = 0;
+
+                        if (progress && record != null) {
+                            JSONObject p = new JSONObject();
+                            p.put("progress", rowsImported);
+                            PluginResult pr = new PluginResult(PluginResult.Status.OK, p);
+                            pr.setKeepCallback(true);
+                            cbc.sendPluginResult(pr);
+                        }
+
+                        b.reset();
+                        b.sql("BEGIN");
+                    }
+
+                    if (record == null) break;
+                }
+
+                JSONObject r = new JSONObject();
+                r.put("rowsImported", rowsImported);
+                r.put("ms", System.currentTimeMillis() - startTime);
+                cbc.success(r);
+
+            } catch (Exception e) {
+                Log.e(SQLitePlugin.class.getSimpleName(), "import error", e);
+                cbc.error("import error after " + rowsImported + " rows imported" +
+                    ((rr != null) ? " (line " + rr.getLineNumber() + ")" : "") + ": " + e.getMessage());
+            } finally {
+                if (rr != null) rr.close();
+            }
+        }
+    }
+
+    private static final int IMPORT_DEFAULT_BATCH_SIZE = 1000;
+
+    // number of script statements executed in each native call:
+    private static final int SCRIPT_BATCH_SIZE = 100;
+
+    private static final int IMPORT_READ_BUFFER_SIZE = 64*1024;
+
+    // SQLITE_MAX_VARIABLE_NUMBER default value:
+    private static final int IMPORT_MAX_VARIABLES = 999;
+
+    private static String insertValuesSQL(String insertPrefix, int ncols, int nrows) {
+        StringBuilder sb = new StringBuilder(insertPrefix.length() + nrows * (ncols * 2 + 3));
+        sb.append(insertPrefix);
+        for (int i = 0; i < nrows; ++i) {
+            if (i > 0) sb.append(',');
+            sb.append('(');
+            for (int j = 0; j < ncols; ++j) {
+                if (j > 0) sb.append(',');
+                sb.append('?');
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    static void appendQuotedIdentifier(StringBuilder sb, String name) {
+        sb.append('"').append(name.replace("\"", "\"\"")).append('"');
     }
 
-    private class MyPluginResult extends PluginResult {
+    static class MyPluginResult extends PluginResult {
         final String jr;
 
         MyPluginResult(String jr) {
@@ -810,10 +2118,23 @@ public class SQLitePlugin extends CordovaPlugin {
         /* ** XXX FUTURE [TBD] ???:
         final JSONArray flatlist;
         // */
-        final CallbackContext cbc;
+        // (results held while a busy retry is pending, see DBRunner.nextDBQuery())
+        CallbackContext cbc;
+        final Action action;
+        final JSONObject options;
+        // busy retries of a read-only flat JSON batch (busyRetries option):
+        int busyRetries = 0;
+        // request id for trace events (trace option):
+        int traceId = 0;
+        // flat JSON batch to be executed atomically in a transaction:
+        boolean atomic = false;
+        // flat JSON batch with statement timing in the result:
+        boolean timing = false;
 
         //* ** TBD OLD:
         DBQuery(String[] myqueries, JSONArray[] params, CallbackContext c) {
+            this.action = null;
+            this.options = null;
             this.fj = null;
             this.ll = -1;
             this.stop = false;
@@ -821,7 +2142,7 @@ public class SQLitePlugin extends CordovaPlugin {
             this.delete = false;
             this.queries = myqueries;
             this.jsonparams = params;
-            this.cbc = c;
+            this.cbc = resultDelivery.callbackContext(c);
         }
         // */
 
@@ -832,11 +2153,13 @@ public class SQLitePlugin extends CordovaPlugin {
             this.delete = false;
             this.queries = myqueries;
             this.flatlist = flatlist;
-            this.cbc = c;
+            this.cbc = resultDelivery.callbackContext(c);
         }
         // */
 
         DBQuery(String fj, int ll, CallbackContext c) {
+            this.action = null;
+            this.options = null;
             this.fj = fj;
             this.ll = ll;
             this.stop = false;
@@ -844,10 +2167,25 @@ public class SQLitePlugin extends CordovaPlugin {
             this.delete = false;
             this.queries = null;
             this.jsonparams = null;
-            this.cbc = c;
+            this.cbc = resultDelivery.callbackContext(c);
+        }
+
+        DBQuery(Action action, JSONObject options, CallbackContext c) {
+            this.action = action;
+            this.options = options;
+            this.fj = null;
+            this.ll = -1;
+            this.stop = false;
+            this.close = false;
+            this.delete = false;
+            this.queries = null;
+            this.jsonparams = null;
+            this.cbc = resultDelivery.callbackContext(c);
         }
 
         DBQuery(boolean delete, CallbackContext cbc) {
+            this.action = null;
+            this.options = null;
             this.fj = null;
             this.ll = -1;
             this.stop = true;
@@ -861,11 +2199,13 @@ public class SQLitePlugin extends CordovaPlugin {
             /* ** XXX FUTURE [TBD] ???:
             this.flatlist = null;
             // */
-            this.cbc = cbc;
+            this.cbc = resultDelivery.callbackContext(cbc);
         }
 
         // signal the DBRunner thread to stop:
         DBQuery() {
+            this.action = null;
+            this.options = null;
             this.fj = null;
             this.ll = -1;
             this.stop = true;
@@ -882,13 +2222,61 @@ public class SQLitePlugin extends CordovaPlugin {
         }
     }
 
+    /**
+     * Durability/performance profiles for the durability open option.
+     */
+    private static enum DurabilityProfile {
+        // rollback journal with full sync (same as the defaults of this build):
+        durable("PRAGMA locking_mode=NORMAL", "PRAGMA journal_mode=DELETE",
+            "PRAGMA synchronous=EXTRA", "PRAGMA temp_store=DEFAULT"),
+
+        // WAL: no sync for each commit, most recent commit(s) may be lost in case of power failure:
+        balanced("PRAGMA locking_mode=NORMAL", "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=NORMAL", "PRAGMA temp_store=MEMORY"),
+
+        // no sync & no journal file, database may be corrupted in case of a crash or power failure:
+        cache("PRAGMA locking_mode=EXCLUSIVE", "PRAGMA journal_mode=MEMORY",
+            "PRAGMA synchronous=OFF", "PRAGMA temp_store=MEMORY");
+
+        final String[] pragmas;
+
+        DurabilityProfile(String... pragmas) {
+            this.pragmas = pragmas;
+        }
+
+        FlatBatch newBatch(int dbid) {
+            FlatBatch batch = new FlatBatch(dbid);
+            for (String pragma: pragmas) batch.sql(pragma);
+            return batch;
+        }
+
+        static DurabilityProfile fromName(String name) throws SQLException {
+            for (DurabilityProfile p: values())
+                if (p.name().equals(name)) return p;
+            throw new SQLException("unknown durability profile: " + name);
+        }
+    }
+
     private static enum Action {
         echoStringValue,
+        bridgeBenchmark,
         open,
         close,
         delete,
         executeSqlBatch,
         backgroundExecuteSqlBatch,
+        importFile,
+        saveSnapshot,
+        getDatabaseStats,
+        exportTrace,
+        getStatementProfile,
+        getDataVersion,
+        subscribeChanges,
+        unsubscribeChanges,
+        queryPage,
+        executeScript,
+        // internal (not called from Javascript):
+        trimMemory,
     }
 }
 
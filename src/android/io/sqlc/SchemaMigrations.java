@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.io.StringReader;
+
+import java.sql.SQLException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Applies the pending schema migration scripts (migrations open option)
+ * right after the database is opened, before the open callback.
+ *
+ * Each migration has a version number (in ascending order) and a SQL
+ * script. The migrations with a version above PRAGMA user_version are
+ * applied in a single transaction, with user_version set to the version
+ * of each migration, so that either all or none of the pending migrations
+ * are applied.
+ *
+ * Result: {"fromVersion":n,"toVersion":n,"applied":[{"version":n,"statements":n,"ms":n},...]}
+ *
+ * NOTE: Must be called from the DBRunner thread.
+ */
+final class SchemaMigrations {
+    private SchemaMigrations() {
+    }
+
+    /**
+     * @param migrations   [{"version":n,"sql":"..."},...]
+     */
+    static JSONObject apply(SQLitePlugin.SQLiteNativeDatabase mydb, int dbid, JSONArray migrations)
+            throws Exception {
+        // check the migrations before starting:
+        int lastVersion = 0;
+        for (int i = 0; i < migrations.length(); ++i) {
+            JSONObject m = migrations.getJSONObject(i);
+            int version = m.getInt("version");
+            if (version <= lastVersion)
+                throw new SQLException("migration versions must be positive and in ascending order: " + version);
+            m.getString("sql");
+            lastVersion = version;
+        }
+
+        final int fromVersion = (int)mydb.queryLong("PRAGMA user_version");
+        int toVersion = fromVersion;
+        JSONArray applied = new JSONArray();
+
+        if (lastVersion > fromVersion) {
+            mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("BEGIN"));
+
+            int version = fromVersion;
+            try {
+                for (int i = 0; i < migrations.length(); ++i) {
+                    JSONObject m = migrations.getJSONObject(i);
+                    version = m.getInt("version");
+                    if (version <= fromVersion) continue;
+
+                    final long start = System.currentTimeMillis();
+                    int statementCount = mydb.executeScript(new SqlScriptReader(new StringReader(m.getString("sql"))), dbid);
+                    mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("PRAGMA user_version=" + version));
+
+                    JSONObject a = new JSONObject();
+                    a.put("version", version);
+                    a.put("statements", statementCount);
+                    a.put("ms", System.currentTimeMillis() - start);
+                    applied.put(a);
+                }
+
+                mydb.executeBatchOrThrow(new FlatBatch(dbid).sql("COMMIT"));
+            } catch (Exception e) {
+                mydb.executeBatch(new FlatBatch(dbid).sql("ROLLBACK"));
+                throw new SQLException("migration to version " + version + " failed: " + e.getMessage());
+            }
+
+            toVersion = lastVersion;
+        }
+
+        JSONObject r = new JSONObject();
+        r.put("fromVersion", fromVersion);
+        r.put("toVersion", toVersion);
+        r.put("applied", applied);
+        return r;
+    }
+}
+
+/* vim: set expandtab : */
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the SQL statements of a script one at a time, for use by the
+ * DBRunner executeScript action, without reading the whole script into
+ * memory.
+ *
+ * A statement ends with a semicolon in the same way as determined by
+ * sqlite3_complete(): semicolons in string literals, quoted identifiers,
+ * comments, and in the body of a CREATE TRIGGER statement (up to END;)
+ * do not end a statement. Empty statements are skipped.
+ */
+final class SqlScriptReader {
+    // tokens:
+    private static final int TK_SEMI = 0;
+    private static final int TK_WS = 1;
+    private static final int TK_OTHER = 2;
+    private static final int TK_EXPLAIN = 3;
+    private static final int TK_CREATE = 4;
+    private static final int TK_TEMP = 5;
+    private static final int TK_TRIGGER = 6;
+    private static final int TK_END = 7;
+
+    // states (same as sqlite3_complete):
+    private static final int ST_START = 1;
+
+    private static final int[][] TRANSITIONS = {
+        /*                SEMI  WS  OTHER  EXPLAIN  CREATE  TEMP  TRIGGER  END */
+        /* 0 INVALID: */ {  1,   0,    2,      3,      4,    2,      2,     2 },
+        /* 1   START: */ {  1,   1,    2,      3,      4,    2,      2,     2 },
+        /* 2  NORMAL: */ {  1,   2,    2,      2,      2,    2,      2,     2 },
+        /* 3 EXPLAIN: */ {  1,   3,    3,      2,      4,    2,      2,     2 },
+        /* 4  CREATE: */ {  1,   4,    2,      2,      2,    4,      5,     2 },
+        /* 5 TRIGGER: */ {  6,   5,    5,      5,      5,    5,      5,     5 },
+        /* 6    SEMI: */ {  6,   6,    5,      5,      5,    5,      5,     7 },
+        /* 7     END: */ {  1,   7,    5,      5,      5,    5,      5,     5 },
+    };
+
+    private final Reader reader;
+
+    private final StringBuilder statement = new StringBuilder();
+
+    private final StringBuilder word = new StringBuilder();
+
+    // look-ahead character (-2: none):
+    private int peeked = -2;
+
+    private int lineNumber = 1;
+
+    private int statementLineNumber = 0;
+
+    SqlScriptReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return line number of the first line of the last statement
+     */
+    int getStatementLineNumber() {
+        return statementLineNumber;
+    }
+
+    /**
+     * @return next statement (with the terminating semicolon), or null at the end of the script
+     */
+    String next() throws IOException {
+        statement.setLength(0);
+        int state = 0;
+        boolean empty = true;
+
+        for (;;) {
+            int c = read();
+            if (c < 0) break;
+
+            int token;
+            final int start = statement.length();
+            statement.append((char)c);
+
+            if (c == ';') {
+                token = TK_SEMI;
+            } else if (Character.isWhitespace(c)) {
+                token = TK_WS;
+            } else if (c == '-' && peek() == '-') {
+                // comment up to the end of the line:
+                while ((c = read()) >= 0) {
+                    statement.append((char)c);
+                    if (c == '\n') break;
+                }
+                token = TK_WS;
+            } else if (c == '/' && peek() == '*') {
+                statement.append((char)read());
+                int prev = 0;
+                while ((c = read()) >= 0) {
+                    statement.append((char)c);
+                    if (prev == '*' && c == '/') break;
+                    prev = c;
+                }
+                token = TK_WS;
+            } else if (c == '\'' || c == '"' || c == '`' || c == '[') {
+                final int close = (c == '[') ? ']' : c;
+                while ((c = read()) >= 0) {
+                    statement.append((char)c);
+                    if (c == close) {
+                        // (doubled quote is part of the value)
+                        if (close != ']' && peek() == close) {
+                            statement.append((char)read());
+                            continue;
+                        }
+                        break;
+                    }
+                }
+                token = TK_OTHER;
+            } else if (isIdentifierChar(c)) {
+                word.setLength(0);
+                word.append((char)c);
+                while (isIdentifierChar(peek())) {
+                    c = read();
+                    statement.append((char)c);
+                    word.append((char)c);
+                }
+                token = keywordToken(word);
+            } else {
+                token = TK_OTHER;
+            }
+
+            if (token != TK_WS && token != TK_SEMI && empty) {
+                // start of a statement (leading whitespace & comments skipped):
+                statement.delete(0, start);
+                statementLineNumber = lineNumber - countLines(statement);
+                empty = false;
+            }
+
+            state = TRANSITIONS[state][token];
+
+            if (token == TK_SEMI && state == ST_START) {
+                if (!empty) return statement.toString();
+                // empty statement:
+                statement.setLength(0);
+            }
+        }
+
+        return empty ? null : statement.toString();
+    }
+
+    void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // ignored
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') ++lineNumber;
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = reader.read();
+        return peeked;
+    }
+
+    private static boolean isIdentifierChar(int c) {
+        return c >= 0 && (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c > 0x7f);
+    }
+
+    private static int countLines(StringBuilder sb) {
+        int n = 0;
+        for (int i = 0; i < sb.length(); ++i) if (sb.charAt(i) == '\n') ++n;
+        return n;
+    }
+
+    private static int keywordToken(StringBuilder w) {
+        switch (w.length()) {
+            case 3:
+                if (equalsIgnoreCase(w, "end")) return TK_END;
+                break;
+            case 4:
+                if (equalsIgnoreCase(w, "temp")) return TK_TEMP;
+                break;
+            case 6:
+                if (equalsIgnoreCase(w, "create")) return TK_CREATE;
+                break;
+            case 7:
+                if (equalsIgnoreCase(w, "trigger")) return TK_TRIGGER;
+                if (equalsIgnoreCase(w, "explain")) return TK_EXPLAIN;
+                break;
+            case 9:
+                if (equalsIgnoreCase(w, "temporary")) return TK_TEMP;
+                break;
+        }
+        return TK_OTHER;
+    }
+
+    private static boolean equalsIgnoreCase(StringBuilder w, String keyword) {
+        for (int i = 0; i < keyword.length(); ++i)
+            if (Character.toLowerCase(w.charAt(i)) != keyword.charAt(i)) return false;
+        return true;
+    }
+}
+
+/* vim: set expandtab : */
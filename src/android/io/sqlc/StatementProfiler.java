@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Aggregates statement execution statistics by normalized SQL
+ * (profile open option), with literal values replaced by ? placeholders.
+ *
+ * The number of entries is bounded: when the map is full, the entries with
+ * the lowest total time (EVICT_DIVISOR part of the entries) are evicted
+ * at once, so that the new statements after an eviction have room to
+ * build up their total time before the next eviction, with the cost of
+ * finding the lowest entries shared by a number of new statements.
+ */
+final class StatementProfiler {
+    static final int DEFAULT_MAX_ENTRIES = 200;
+
+    private static final int EVICT_DIVISOR = 10;
+
+    static final String NOT_EXECUTED_MESSAGE = "statement not executed due to an earlier error in the batch";
+
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private static final class Entry {
+        final String sql;
+        long count = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+        long rows = 0;
+        long changes = 0;
+
+        Entry(String sql) {
+            this.sql = sql;
+        }
+
+        synchronized void add(long nanos, long rows, long changes) {
+            ++this.count;
+            this.totalNanos += nanos;
+            if (nanos > this.maxNanos) this.maxNanos = nanos;
+            this.rows += rows;
+            this.changes += changes;
+        }
+
+        synchronized JSONObject toJSON() throws JSONException {
+            JSONObject o = new JSONObject();
+            o.put("sql", sql);
+            o.put("count", count);
+            o.put("totalTime", totalNanos / 1e6);
+            o.put("maxTime", maxNanos / 1e6);
+            o.put("rows", rows);
+            o.put("changes", changes);
+            return o;
+        }
+
+        synchronized long totalNanos() {
+            return totalNanos;
+        }
+    }
+
+    StatementProfiler(int maxEntries) {
+        this.maxEntries = Math.max(maxEntries, 1);
+    }
+
+    /**
+     * Record a statement execution.
+     *
+     * @param sql       SQL statement (as executed)
+     * @param nanos     execution time in nanoseconds
+     * @param rows      number of result rows
+     * @param changes   number of rows changed
+     */
+    void record(String sql, long nanos, long rows, long changes) {
+        final String key = normalize(sql);
+
+        Entry e = entries.get(key);
+        if (e == null) {
+            if (entries.size() >= maxEntries) evictLowest();
+            Entry newEntry = new Entry(key);
+            e = entries.putIfAbsent(key, newEntry);
+            if (e == null) e = newEntry;
+        }
+
+        e.add(nanos, rows, changes);
+    }
+
+    private void evictLowest() {
+        final ArrayList<Map.Entry<String, Entry>> list = new ArrayList<Map.Entry<String, Entry>>(entries.entrySet());
+        final int n = list.size();
+        final long[] totals = new long[n];
+        ArrayList<Integer> order = new ArrayList<Integer>(n);
+        for (int i = 0; i < n; ++i) {
+            totals[i] = list.get(i).getValue().totalNanos();
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return (totals[a] < totals[b]) ? -1 : (totals[a] > totals[b]) ? 1 : 0;
+            }
+        });
+
+        final int evictCount = Math.min(Math.max(maxEntries / EVICT_DIVISOR, 1), n);
+        for (int i = 0; i < evictCount; ++i)
+            entries.remove(list.get(order.get(i)).getKey());
+    }
+
+    void reset() {
+        entries.clear();
+    }
+
+    /**
+     * @return entries with the highest total time first (up to limit), times in milliseconds
+     */
+    JSONArray toJSON(int limit) throws JSONException {
+        ArrayList<Entry> list = new ArrayList<Entry>(entries.values());
+        final int n = list.size();
+        final long[] totals = new long[n];
+        ArrayList<Integer> order = new ArrayList<Integer>(n);
+        for (int i = 0; i < n; ++i) {
+            totals[i] = list.get(i).totalNanos();
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return (totals[a] < totals[b]) ? 1 : (totals[a] > totals[b]) ? -1 : 0;
+            }
+        });
+
+        JSONArray a = new JSONArray();
+        for (int i = 0; i < n && i < limit; ++i)
+            a.put(list.get(order.get(i)).toJSON());
+        return a;
+    }
+
+    /**
+     * Execute a flat JSON batch request one statement at a time, with the
+     * same results as a single batch.
+     *
+     * @param profiler      records each statement (or null)
+     * @param timing        gets { native time in microseconds, result size } for each statement (or null)
+     * @param stopOnError   do not execute the statements after a failed statement
+     *                      (each with a NOT_EXECUTED_MESSAGE error result)
+     *
+     * @return flat JSON batch result
+     */
+    static String executeSplit(SQLitePlugin.SQLiteNativeDatabase mydb, String fj, int ll,
+            StatementProfiler profiler, ArrayList<long[]> timing, boolean stopOnError) {
+        // statements are built first, so that nothing is executed in case of a request format error:
+        ArrayList<String> statements = new ArrayList<String>();
+        ArrayList<FlatBatch> batches = new ArrayList<FlatBatch>();
+        try {
+            JSONArray a = new JSONArray(fj);
+            final int dbid = a.getInt(0);
+            final int count = a.getInt(1);
+            int i = 2;
+
+            for (int s = 0; s < count; ++s) {
+                final String sql = a.getString(i++);
+                final int paramCount = a.getInt(i++);
+
+                FlatBatch b = new FlatBatch(dbid).sql(sql, paramCount);
+                for (int p = 0; p < paramCount; ++p) b.param(a.get(i++));
+
+                statements.add(sql);
+                batches.add(b);
+            }
+        } catch (JSONException e) {
+            // let the native library report the batch error
+            return mydb.flatBatchJSON(fj, ll);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+
+        boolean failed = false;
+
+        for (int s = 0; s < batches.size(); ++s) {
+            if (failed) {
+                sb.append("\"error\",0,null,");
+                FlatBatch.appendQuoted(sb, NOT_EXECUTED_MESSAGE);
+                sb.append(',');
+                if (timing != null) timing.add(new long[] { 0, 0 });
+                continue;
+            }
+
+            final long start = System.nanoTime();
+            String r = mydb.executeBatch(batches.get(s));
+            final long nanos = System.nanoTime() - start;
+
+            if (profiler != null) profiler.recordResult(statements.get(s), nanos, r);
+
+            // statement result without the enclosing brackets & "extra" element:
+            int end = r.length() - 1;
+            if (r.endsWith(",\"extra\"]")) end -= 8;
+            else if (r.endsWith("[\"extra\"]")) end -= 7;
+            if (end > 1) {
+                sb.append(r, 1, end);
+                sb.append(',');
+            }
+
+            if (timing != null) timing.add(new long[] { nanos / 1000, Math.max(end - 1, 0) });
+
+            if (stopOnError && r.startsWith("[\"error\"")) failed = true;
+        }
+
+        sb.append("\"extra\"]");
+        return sb.toString();
+    }
+
+    /**
+     * Add the statement timing in front of a flat JSON batch result:
+     *
+     * ["timing", count, native_time, result_size, ..., results...]
+     */
+    static String withTiming(String flatResult, ArrayList<long[]> timing) {
+        StringBuilder sb = new StringBuilder(flatResult.length() + 16 + 24 * timing.size());
+        sb.append("[\"timing\",").append(timing.size());
+        for (long[] t: timing) sb.append(',').append(t[0]).append(',').append(t[1]);
+        if (flatResult.length() > 2) sb.append(',');
+        sb.append(flatResult, 1, flatResult.length());
+        return sb.toString();
+    }
+
+    /**
+     * Record a statement from its flat JSON result.
+     */
+    private void recordResult(String sql, long nanos, String flatResult) {
+        long rows = 0;
+        long changes = 0;
+
+        try {
+            FlatResultScanner r = new FlatResultScanner(flatResult);
+
+            if (r.nextIs("ch2")) {
+                r.skip(1);
+                Object value = r.nextValue();
+                if (value instanceof Number) changes = ((Number)value).longValue();
+            } else if (r.nextIs("okrows")) {
+                r.skip(1);
+                changes = r.skipChangesAndInsertId();
+                rows = r.skipRows();
+            }
+        } catch (JSONException e) {
+            // (not expected) record the time only
+        }
+
+        record(sql, nanos, rows, changes);
+    }
+
+    /**
+     * Normalize a SQL statement: replace string, blob, and numeric literals
+     * with ?, remove comments, and collapse whitespace. Placeholders and
+     * quoted identifiers are kept.
+     */
+    static String normalize(String sql) {
+        final int len = sql.length();
+        StringBuilder sb = new StringBuilder(len);
+        boolean space = false;
+        int i = 0;
+
+        while (i < len) {
+            char c = sql.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                space = true;
+                ++i;
+                continue;
+            }
+
+            if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+                while (i < len && sql.charAt(i) != '\n') ++i;
+                space = true;
+                continue;
+            }
+
+            if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = (end < 0) ? len : end + 2;
+                space = true;
+                continue;
+            }
+
+            if (space && sb.length() > 0) sb.append(' ');
+            space = false;
+
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                sb.append('?');
+            } else if ((c == 'x' || c == 'X') && i + 1 < len && sql.charAt(i + 1) == '\'' &&
+                    !isIdentifierChar(sb)) {
+                i = skipQuoted(sql, i + 1, '\'');
+                sb.append('?');
+            } else if (c == '"' || c == '`' || c == '[') {
+                int end = skipQuoted(sql, i, (c == '[') ? ']' : c);
+                sb.append(sql, i, end);
+                i = end;
+            } else if ((isDigit(c) || (c == '.' && i + 1 < len && isDigit(sql.charAt(i + 1)))) &&
+                    !isIdentifierChar(sb)) {
+                i = skipNumber(sql, i);
+                sb.append('?');
+            } else {
+                sb.append(c);
+                ++i;
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return true if the last character in the buffer is part of an identifier
+     * (or a numbered or named parameter such as ?1 or :p1)
+     */
+    private static boolean isIdentifierChar(StringBuilder sb) {
+        if (sb.length() == 0) return false;
+        char c = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '?' || c == ':' || c == '@';
+    }
+
+    /**
+     * @return index after the closing quote (doubled quotes are part of the value)
+     */
+    private static int skipQuoted(String sql, int start, char close) {
+        final int len = sql.length();
+        int i = start + 1;
+        while (i < len) {
+            if (sql.charAt(i) == close) {
+                if (close != ']' && i + 1 < len && sql.charAt(i + 1) == close) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            ++i;
+        }
+        return len;
+    }
+
+    private static int skipNumber(String sql, int start) {
+        final int len = sql.length();
+        int i = start;
+
+        if (sql.startsWith("0x", i) || sql.startsWith("0X", i)) {
+            i += 2;
+            while (i < len && Character.digit(sql.charAt(i), 16) >= 0) ++i;
+            return i;
+        }
+
+        while (i < len && (isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) ++i;
+
+        if (i < len && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < len && (sql.charAt(j) == '+' || sql.charAt(j) == '-')) ++j;
+            if (j < len && isDigit(sql.charAt(j))) {
+                i = j;
+                while (i < len && isDigit(sql.charAt(i))) ++i;
+            }
+        }
+
+        return i;
+    }
+}
+
+/* vim: set expandtab : */
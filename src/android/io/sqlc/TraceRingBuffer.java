@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012-2018: Christopher J. Brody (aka Chris Brody)
+ *
+ * License for this version: GPL v3 (http://www.gnu.org/licenses/gpl.txt) or commercial license.
+ * Contact for commercial license: info@litehelpers.net
+ */
+
+package io.sqlc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size trace of batch request lifecycle events for a database
+ * (trace open option), in preallocated arrays so that recording an event
+ * does not allocate or lock. The oldest events are overwritten once the
+ * buffer is full.
+ *
+ * The events can be exported in Chrome trace event format (JSON object
+ * format with async events), for use with chrome://tracing or Perfetto.
+ *
+ * NOTE: An event that is recorded while the trace is exported may be
+ * skipped or (rarely) exported with mixed fields.
+ */
+final class TraceRingBuffer {
+    static final int DEFAULT_CAPACITY = 4096;
+
+    static final int ENQUEUE = 0;
+    static final int DEQUEUE = 1;
+    static final int NATIVE_BEGIN = 2;
+    static final int NATIVE_END = 3;
+    static final int DELIVER_BEGIN = 4;
+    static final int DELIVER_END = 5;
+
+    // Chrome trace event name & phase for each event type:
+    private static final String[] EVENT_NAMES = { "queued", "queued", "native", "native", "deliver", "deliver" };
+    private static final char[] EVENT_PHASES = { 'b', 'e', 'b', 'e', 'b', 'e' };
+
+    private final int dbid;
+
+    private final int mask;
+
+    private final int[] types;
+
+    private final int[] ids;
+
+    private final long[] times;
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    /**
+     * @param capacity number of events, rounded up to a power of two
+     */
+    TraceRingBuffer(int dbid, int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.dbid = dbid;
+        this.mask = size - 1;
+        this.types = new int[size];
+        this.ids = new int[size];
+        this.times = new long[size];
+    }
+
+    /**
+     * @return new request id for the trace events of a request
+     */
+    int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    void record(int type, int id) {
+        final int slot = count.getAndIncrement() & mask;
+        types[slot] = type;
+        ids[slot] = id;
+        times[slot] = System.nanoTime();
+    }
+
+    void clear() {
+        count.set(0);
+    }
+
+    /**
+     * Export the recorded events in Chrome trace event format:
+     * {"traceEvents":[{"name":..,"cat":"sqlite","ph":"b","id":..,"ts":..,"pid":..,"tid":..},...]}
+     */
+    String toChromeTraceJSON() {
+        final int end = count.get();
+        // (count may have wrapped around after 2^31 events)
+        final int n = (end < 0 || end > mask) ? mask + 1 : end;
+
+        StringBuilder sb = new StringBuilder(32 + n * 100);
+        sb.append("{\"traceEvents\":[");
+
+        for (int i = end - n; i != end; ++i) {
+            final int slot = i & mask;
+            final int type = types[slot];
+
+            if (i != end - n) sb.append(',');
+            sb.append("{\"name\":\"").append(EVENT_NAMES[type]);
+            sb.append("\",\"cat\":\"sqlite\",\"ph\":\"").append(EVENT_PHASES[type]);
+            sb.append("\",\"id\":").append(ids[slot]);
+            // timestamp in microseconds:
+            sb.append(",\"ts\":").append(times[slot] / 1000);
+            sb.append(",\"pid\":").append(dbid);
+            sb.append(",\"tid\":").append(dbid);
+            sb.append('}');
+        }
+
+        sb.append("],\"displayTimeUnit\":\"ms\"}");
+        return sb.toString();
+    }
+}
+
+/* vim: set expandtab : */
@@ -4,7 +4,7 @@ Contact for commercial license: info@litehelpers.net
  */
 
 (function() {
-  var DB_STATE_INIT, DB_STATE_OPEN, READ_ONLY_REGEX, SQLiteFactory, SQLitePlugin, SQLitePluginTransaction, SelfTest, argsArray, dblocations, iosLocationMap, newSQLError, nextReaderIndex, nextTick, root, txLocks, useflatjson_a1;
+  var DB_STATE_INIT, DB_STATE_OPEN, READ_ONLY_REGEX, SQLiteFactory, SQLitePlugin, SQLitePluginNativeTask, SQLitePluginTransaction, SQLiteShardedDatabase, SelfTest, argsArray, dblocations, iosLocationMap, newSQLError, nextReaderIndex, nextTick, root, timingNow, txLocks, useflatjson_a1;
 
   root = this;
 
@@ -48,6 +48,14 @@ Contact for commercial license: info@litehelpers.net
     window.setTimeout(fun, 0);
   };
 
+  timingNow = function() {
+    if (!!window.performance && !!window.performance.now) {
+      return window.performance.now();
+    } else {
+      return Date.now();
+    }
+  };
+
 
   /*
     Utility that avoids leaking the arguments object. See
@@ -198,6 +206,9 @@ Contact for commercial license: info@litehelpers.net
             _this.dbidmap[_this.dbname] = _this.dbid = fjinfo.dbid;
             _this.fjmap[_this.dbname] = true;
           }
+          if (!!fjinfo && !!fjinfo.migrations) {
+            _this.migrations = fjinfo.migrations;
+          }
           if (!_this.openDBs[_this.dbname]) {
             console.log('database was closed during open operation');
           }
@@ -214,10 +225,13 @@ Contact for commercial license: info@litehelpers.net
         };
       })(this);
       openerrorcb = (function(_this) {
-        return function() {
+        return function(e) {
           console.log('OPEN database: ' + _this.dbname + ' FAILED, aborting any pending transactions');
+          if (!!e) {
+            console.log('OPEN database error: ' + e);
+          }
           if (!!error) {
-            error(newSQLError('Could not open database'));
+            error(newSQLError('Could not open database' + (!!e ? ': ' + e : '')));
           }
           delete _this.openDBs[_this.dbname];
           delete _this.dbidmap[_this.dbname];
@@ -320,10 +334,200 @@ Contact for commercial license: info@litehelpers.net
       }
       return results;
     };
-    this.addTransaction(new SQLitePluginTransaction(this, myfn, error, success, true, false));
+    this.addTransaction(new SQLitePluginTransaction(this, myfn, error, success, true, false, batchList.length > 0));
+  };
+
+  SQLitePlugin.prototype.importFile = function(options, success, error, progress) {
+    if (!options || !options.file || !options.table) {
+      throw newSQLError('importFile expects an options object with file and table values');
+    }
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'importFile', options, success, error, progress));
+  };
+
+  SQLitePlugin.prototype.saveSnapshot = function(success, error) {
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'saveSnapshot', {}, success, error));
+  };
+
+  SQLitePlugin.prototype.getDatabaseStats = function(options, success, error) {
+    if (typeof options === 'function') {
+      error = success;
+      success = options;
+      options = {};
+    }
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'getDatabaseStats', options || {}, success, error));
+  };
+
+  SQLitePlugin.prototype.exportTrace = function(success, error) {
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'exportTrace', {}, success, error));
+  };
+
+  SQLitePlugin.prototype.getStatementProfile = function(options, success, error) {
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'getStatementProfile', options || {}, success, error));
+  };
+
+  SQLitePlugin.prototype.subscribeChanges = function(options, callback, success, error) {
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'subscribeChanges', options || {}, success, error, callback));
+  };
+
+  SQLitePlugin.prototype.unsubscribeChanges = function(success, error) {
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'unsubscribeChanges', {}, success, error));
+  };
+
+  SQLitePlugin.prototype.queryPage = function(options, success, error) {
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'queryPage', options, success, error));
+  };
+
+  SQLitePlugin.prototype.executeScript = function(options, success, error) {
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    this.addTransaction(new SQLitePluginNativeTask(this, 'executeScript', options, success, error));
+  };
+
+  SQLitePlugin.prototype.getDataVersion = function(success, error) {
+    var myerror;
+    if (!this.openDBs[this.dbname]) {
+      if (!!error) {
+        nextTick(function() {
+          return error(newSQLError('database not open'));
+        });
+      }
+      return;
+    }
+    myerror = function(e) {
+      if (!!error) {
+        error(newSQLError(e));
+      }
+    };
+    cordova.exec(success, myerror, "SQLitePlugin", "getDataVersion", [
+      {
+        dbargs: {
+          dbname: this.dbname
+        }
+      }
+    ]);
+  };
+
+  SQLitePluginNativeTask = function(db, action, options, success, error, progress) {
+    this.db = db;
+    this.action = action;
+    this.options = options;
+    this.success = success;
+    this.error = error;
+    this.progress = progress;
+  };
+
+  SQLitePluginNativeTask.prototype.start = function() {
+    var finish, myerror, mysuccess, task;
+    task = this;
+    finish = function() {
+      txLocks[task.db.dbname].inProgress = false;
+      task.db.startNextTransaction();
+    };
+    mysuccess = function(result) {
+      if (!!result && result.progress !== void 0) {
+        if (!!task.progress) {
+          task.progress(result.progress);
+        }
+        return;
+      }
+      finish();
+      if (!!task.success) {
+        task.success(result);
+      }
+    };
+    myerror = function(e) {
+      finish();
+      if (!!task.error) {
+        task.error(newSQLError(e));
+      }
+    };
+    cordova.exec(mysuccess, myerror, "SQLitePlugin", this.action, [
+      {
+        dbargs: {
+          dbname: this.db.dbname
+        },
+        options: this.options
+      }
+    ]);
+  };
+
+  SQLitePluginNativeTask.prototype.abortFromQ = function(sqlerror) {
+    if (this.error) {
+      this.error(sqlerror);
+    }
   };
 
-  SQLitePluginTransaction = function(db, fn, error, success, txlock, readOnly) {
+  SQLitePluginTransaction = function(db, fn, error, success, txlock, readOnly, atomic) {
     if (typeof fn !== "function") {
 
       /*
@@ -340,19 +544,34 @@ Contact for commercial license: info@litehelpers.net
     this.success = success;
     this.txlock = txlock;
     this.readOnly = readOnly;
+    this.atomic = !!atomic;
     this.executes = [];
     if (txlock) {
-      this.addStatement("BEGIN", [], null, function(tx, err) {
-        throw newSQLError("unable to begin transaction: " + err.message, err.code);
-      });
+      if (!this.atomic) {
+        this.addBeginStatement();
+      }
     } else {
       this.addStatement("SELECT 1", [], null, null);
     }
   };
 
+  SQLitePluginTransaction.prototype.addBeginStatement = function() {
+    this.addStatement("BEGIN", [], null, function(tx, err) {
+      throw newSQLError("unable to begin transaction: " + err.message, err.code);
+    });
+  };
+
+  SQLitePluginTransaction.prototype.setTiming = function(enabled) {
+    this.timing = !!enabled;
+  };
+
   SQLitePluginTransaction.prototype.start = function() {
     var err;
     try {
+      if (this.atomic && (useflatjson_a1 || !this.db.fjmap[this.db.dbname])) {
+        this.atomic = false;
+        this.addBeginStatement();
+      }
       this.fn(this);
       this.run();
     } catch (error1) {
@@ -417,6 +636,9 @@ Contact for commercial license: info@litehelpers.net
       rowsAffected: response.rowsAffected || 0,
       insertId: response.insertId || void 0
     };
+    if (!!response.timing) {
+      payload.timing = response.timing;
+    }
     handler(this, payload);
   };
 
@@ -473,7 +695,7 @@ Contact for commercial license: info@litehelpers.net
   };
 
   SQLitePluginTransaction.prototype.run_batch_flatjson = function(batchExecutes, handlerFor) {
-    var bl, flatlist, i, l, len1, mycb, mycbmap, p, ref, request;
+    var atomic, bl, flags, flatlist, i, l, len1, mycb, mycbmap, p, ref, request, timing;
     flatlist = [];
     mycbmap = {};
     this.db.dbid = this.db.dbidmap[this.db.dbname];
@@ -497,38 +719,59 @@ Contact for commercial license: info@litehelpers.net
     }
     flatlist.push('extra');
     bl = batchExecutes.length;
+    atomic = this.atomic;
+    timing = !!this.timing;
     mycb = function(result) {
-      var c, changes, code, errormessage, insert_id, j, k, q, r, ri, rl, row, rows, v;
+      var addTiming, c, changes, code, errormessage, insert_id, j, k, q, r, ri, rl, row, rows, t0, timinglist, v;
       i = 0;
       ri = 0;
       rl = result.length;
+      timinglist = null;
+      t0 = 0;
+      addTiming = function(response) {
+        if (!!timinglist) {
+          response.timing = {
+            nativeTime: timinglist[2 * i],
+            resultSize: timinglist[2 * i + 1],
+            materializeTime: Math.round((timingNow() - t0) * 1000)
+          };
+        }
+        return response;
+      };
       if (rl > 0 && result[0] === 'batcherror') {
         while (i < bl) {
           mycbmap[i].error({
             result: {
               code: -1,
               sqliteCode: -1,
-              message: 'internal batch error'
+              message: atomic && !!result[1] ? result[1] : 'internal batch error'
             }
           });
           ++i;
         }
         return;
       }
+      if (rl > 0 && result[0] === 'timing') {
+        timinglist = result.slice(2, 2 + 2 * result[1]);
+        ri = 2 + 2 * result[1];
+      }
       while (ri < rl) {
+        if (!!timinglist) {
+          t0 = timingNow();
+        }
         r = result[ri++];
         q = mycbmap[i];
         if (r === 'ok') {
-          q.success({
+          q.success(addTiming({
             rows: []
-          });
+          }));
         } else if (r === "ch2") {
           changes = result[ri++];
           insert_id = result[ri++];
-          q.success({
+          q.success(addTiming({
             rowsAffected: changes,
             insertId: insert_id
-          });
+          }));
         } else if (r === 'okrows') {
           rows = [];
           changes = 0;
@@ -553,11 +796,11 @@ Contact for commercial license: info@litehelpers.net
             }
             rows.push(row);
           }
-          q.success({
+          q.success(addTiming({
             rows: rows,
             rowsAffected: changes,
             insertId: insert_id
-          });
+          }));
           ++ri;
         } else if (r === 'error') {
           code = result[ri++];
@@ -571,7 +814,8 @@ Contact for commercial license: info@litehelpers.net
         ++i;
       }
     };
-    cordova.exec(mycb, null, "SQLitePlugin", "fj:" + flatlist.length + ";extra", flatlist);
+    flags = atomic && timing ? 'atomic,timing' : atomic ? 'atomic' : timing ? 'timing' : 'extra';
+    cordova.exec(mycb, null, "SQLitePlugin", "fj:" + flatlist.length + ";" + flags, flatlist);
   };
 
   SQLitePluginTransaction.prototype.run_batch_flatjson_a1 = function(batchExecutes, handlerFor) {
@@ -731,7 +975,7 @@ Contact for commercial license: info@litehelpers.net
       }
     };
     this.finalized = true;
-    if (this.txlock) {
+    if (this.txlock && !this.atomic) {
       this.addStatement("ROLLBACK", [], succeeded, failed);
       this.run();
     } else {
@@ -760,7 +1004,7 @@ Contact for commercial license: info@litehelpers.net
       }
     };
     this.finalized = true;
-    if (this.txlock) {
+    if (this.txlock && !this.atomic) {
       this.addStatement("COMMIT", [], succeeded, failed);
       this.run();
     } else {
@@ -774,6 +1018,197 @@ Contact for commercial license: info@litehelpers.net
     }
   };
 
+  SQLiteShardedDatabase = function(openargs, openSuccess, openError) {
+    var firstError, i, k, openedShards, remaining, shardOpenDone, shardOpenError, shardOpenSuccess, shardargs, v;
+    this.name = openargs.name;
+    this.shards = [];
+    remaining = openargs.shards;
+    firstError = null;
+    openedShards = [];
+    shardOpenDone = (function(_this) {
+      return function() {
+        var closeDone, closeRemaining, db, l, len1;
+        if (--remaining === 0) {
+          if (!firstError) {
+            if (!!openSuccess) {
+              openSuccess(_this);
+            }
+          } else {
+            closeRemaining = openedShards.length;
+            closeDone = function() {
+              if (--closeRemaining === 0 && !!openError) {
+                openError(firstError);
+              }
+            };
+            if (closeRemaining === 0) {
+              if (!!openError) {
+                openError(firstError);
+              }
+            } else {
+              for (l = 0, len1 = openedShards.length; l < len1; l++) {
+                db = openedShards[l];
+                db.close(closeDone, closeDone);
+              }
+            }
+          }
+        }
+      };
+    })(this);
+    shardOpenSuccess = function(db) {
+      openedShards.push(db);
+      shardOpenDone();
+    };
+    shardOpenError = function(e) {
+      if (!firstError) {
+        firstError = e;
+      }
+      shardOpenDone();
+    };
+    i = 0;
+    while (i < openargs.shards) {
+      shardargs = {};
+      for (k in openargs) {
+        v = openargs[k];
+        shardargs[k] = v;
+      }
+      delete shardargs.shards;
+      shardargs.name = openargs.name + '-shard-' + i;
+      this.shards.push(SQLiteFactory.openDatabase(shardargs, shardOpenSuccess, shardOpenError));
+      ++i;
+    }
+  };
+
+  SQLiteShardedDatabase.prototype.shardIndex = function(shardKey) {
+    var h, i, s;
+    s = String(shardKey);
+    h = 0x811c9dc5;
+    i = 0;
+    while (i < s.length) {
+      h ^= s.charCodeAt(i);
+      h += (h << 1) + (h << 4) + (h << 7) + (h << 8) + (h << 24);
+      ++i;
+    }
+    return (h >>> 0) % this.shards.length;
+  };
+
+  SQLiteShardedDatabase.prototype.shard = function(shardKey) {
+    return this.shards[this.shardIndex(shardKey)];
+  };
+
+  SQLiteShardedDatabase.prototype.transaction = function(shardKey, fn, error, success) {
+    this.shard(shardKey).transaction(fn, error, success);
+  };
+
+  SQLiteShardedDatabase.prototype.readTransaction = function(shardKey, fn, error, success) {
+    this.shard(shardKey).readTransaction(fn, error, success);
+  };
+
+  SQLiteShardedDatabase.prototype.executeSql = function(shardKey, statement, params, success, error) {
+    this.shard(shardKey).executeSql(statement, params, success, error);
+  };
+
+  SQLiteShardedDatabase.prototype.sqlBatch = function(shardKey, sqlStatements, success, error) {
+    this.shard(shardKey).sqlBatch(sqlStatements, success, error);
+  };
+
+  SQLiteShardedDatabase.prototype.runOnAll = function(fn, success, error) {
+    var done, failed, firstError, remaining, results;
+    results = [];
+    remaining = this.shards.length;
+    failed = false;
+    firstError = null;
+    done = function() {
+      if (--remaining === 0) {
+        if (!failed) {
+          if (!!success) {
+            success(results);
+          }
+        } else if (!!error) {
+          error(firstError);
+        }
+      }
+    };
+    this.shards.forEach(function(db, i) {
+      var fail, ok;
+      ok = function(r) {
+        results[i] = r;
+        done();
+      };
+      fail = function(e) {
+        if (!failed) {
+          failed = true;
+          firstError = e;
+        }
+        done();
+      };
+      fn(db, ok, fail);
+    });
+  };
+
+  SQLiteShardedDatabase.prototype.sqlBatchAll = function(sqlStatements, success, error) {
+    var batch;
+    batch = function(db, ok, fail) {
+      db.sqlBatch(sqlStatements, ok, fail);
+    };
+    this.runOnAll(batch, (function() {
+      if (!!success) {
+        return success();
+      }
+    }), error);
+  };
+
+  SQLiteShardedDatabase.prototype.executeSqlAll = function(statement, params, success, error) {
+    var merge, query;
+    query = function(db, ok, fail) {
+      var rs, txfn;
+      rs = null;
+      txfn = function(tx) {
+        tx.executeSql(statement, params, function(tx, r) {
+          rs = r;
+        });
+      };
+      db.readTransaction(txfn, fail, function() {
+        ok(rs);
+      });
+    };
+    merge = function(results) {
+      var i, l, len1, rows, rs;
+      rows = [];
+      for (l = 0, len1 = results.length; l < len1; l++) {
+        rs = results[l];
+        i = 0;
+        while (i < rs.rows.length) {
+          rows.push(rs.rows.item(i));
+          ++i;
+        }
+      }
+      if (!!success) {
+        success({
+          rows: {
+            item: function(i) {
+              return rows[i];
+            },
+            length: rows.length
+          },
+          rowsAffected: 0
+        });
+      }
+    };
+    this.runOnAll(query, merge, error);
+  };
+
+  SQLiteShardedDatabase.prototype.close = function(success, error) {
+    var closeShard;
+    closeShard = function(db, ok, fail) {
+      db.close(ok, fail);
+    };
+    this.runOnAll(closeShard, (function() {
+      if (!!success) {
+        return success();
+      }
+    }), error);
+  };
+
   dblocations = ["docs", "libs", "nosync"];
 
   iosLocationMap = {
@@ -842,6 +1277,15 @@ Contact for commercial license: info@litehelpers.net
       openargs.name = '$RW-' + openargs.filename;
       return new SQLitePlugin(openargs, okcb, errorcb);
     }),
+    openShardedDatabase: function(openargs, success, error) {
+      if (!openargs || !openargs.name || !openargs.shards) {
+        throw newSQLError('openShardedDatabase expects an options object with name and shards values');
+      }
+      if (typeof openargs.shards !== 'number' || openargs.shards < 1 || openargs.shards % 1 !== 0) {
+        throw newSQLError('openShardedDatabase shards value must be a positive integer');
+      }
+      return new SQLiteShardedDatabase(openargs, success, error);
+    },
     deleteDatabase: function(first, success, error) {
       var args, dblocation, dbname;
       if (true) {
@@ -1157,8 +1601,12 @@ Contact for commercial license: info@litehelpers.net
         }
       ]);
     },
+    bridgeBenchmark: function(options, success, error) {
+      return cordova.exec(success, error, "SQLitePlugin", "bridgeBenchmark", [options]);
+    },
     selfTest: SelfTest.start,
     openDatabase: SQLiteFactory.openDatabase,
+    openShardedDatabase: SQLiteFactory.openShardedDatabase,
     deleteDatabase: SQLiteFactory.deleteDatabase
   };
 